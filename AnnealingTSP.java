@@ -0,0 +1,430 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Simulated annealing with parallel tempering. Every replica runs on its own thread at its own
+ * temperature, trying 2-opt moves over the candidate lists and vertex swaps whose cost changes are
+ * evaluated in O(1) from a handful of getWeight calls, with no allocation and an inline xorshift
+ * generator per replica. After each epoch the replicas meet at a barrier where neighboring
+ * temperatures are exchanged by the Metropolis rule, and the whole ladder is cooled. Each replica
+ * remembers the shortest tour it has passed through, copying it only when an uphill move leaves
+ * it, and those tours are published at the barrier, so a best tour reached and left inside an
+ * epoch is not lost.
+ */
+public class AnnealingTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int EPOCH = 1 << 16; //the number of moves between exchanges
+
+	private Graph graph; //the shared, read-only graph
+	private int[][] neighbors; //the shared candidate lists
+	private Replica[] replicas; //the replicas, one thread each
+	private int[] slot; //the replica currently holding each temperature, coldest first
+	private double[] ladder; //the temperatures before cooling, coldest first
+	private double cooling; //the current multiplier of the ladder
+	private AtomicReference<Tour> best; //the best tour found by any replica
+	private long swaps; //the number of accepted temperature exchanges
+	private volatile boolean done; //set by the barrier action once the budget is spent
+
+	/**
+	 * The state of one replica. Only its own thread touches it between barriers.
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Replica implements Runnable {
+		private int[] order; //the tour as a cyclic order of vertices
+		private int[] pos; //the position of each vertex in order
+		private double length; //the length of the current tour
+		private double temperature; //the temperature, assigned at every barrier
+		private long state; //the xorshift state
+		private long attempted; //the number of moves evaluated
+		private long accepted; //the number of moves applied
+		private int[] bestOrder; //the shortest tour this replica has reached, as of the last time it left it
+		private double bestLength; //the length of the shortest tour this replica has reached
+		private boolean atBest; //true if order is still that shortest tour, so bestOrder is out of date
+		private int[] path; //scratch space to publish the tour
+		private CyclicBarrier barrier; //where the replicas meet after every epoch
+
+		/**
+		 * Constructor for a replica
+		 * @param start the starting path, N+1 entries
+		 * @param seed the seed of the generator, must not be zero
+		 */
+		public Replica(int[] start, long seed){
+			int N = graph.getN();
+			this.order = new int[N];
+			this.pos = new int[N];
+			for (int i = 0; i < N; i++){
+				order[i] = start[i];
+				pos[start[i]] = i;
+			}
+			this.length = graph.tourLength(start);
+			this.bestOrder = new int[N];
+			this.bestLength = length;
+			this.atBest = true;
+			this.state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+			this.path = new int[N + 1];
+		}
+
+		@Override
+		public void run(){ //already documented
+			try {
+				while (!done){
+					for (int m = 0; m < EPOCH; m++){
+						if ((next() & 15) == 0){
+							swapMove();
+						} else {
+							twoOptMove();
+						}
+					}
+					barrier.await();
+				}
+			} catch (InterruptedException | BrokenBarrierException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Tries a 2-opt move that adds an edge from a random vertex to one of its candidates
+		 */
+		private void twoOptMove(){
+			int N = order.length;
+			int a = nextInt(N);
+			int c = neighbors[a][nextInt(neighbors[a].length)];
+			boolean forward = (next() & 1) == 0;
+			int b = forward ? order[succ(pos[a])] : order[pred(pos[a])];
+			int d = forward ? order[succ(pos[c])] : order[pred(pos[c])];
+			attempted++;
+			if (c == b || d == a) return;
+			double delta = graph.getWeight(a, c) + graph.getWeight(b, d)
+					- graph.getWeight(a, b) - graph.getWeight(c, d);
+			if (!accept(delta)) return;
+			leave(delta);
+			if (forward){
+				reverse(pos[b], pos[c]);
+			} else {
+				reverse(pos[a], pos[d]);
+			}
+			length += delta;
+			accepted++;
+			record();
+		}
+
+		/**
+		 * Tries to swap the places of two random vertices
+		 */
+		private void swapMove(){
+			int N = order.length;
+			int i = nextInt(N);
+			int j = nextInt(N);
+			attempted++;
+			if (i == j) return;
+			if (succ(j) == i){ //makes j the successor of i whenever they are adjacent
+				int t = i;
+				i = j;
+				j = t;
+			}
+			int a = order[i];
+			int b = order[j];
+			int pa = order[pred(i)];
+			int nb = order[succ(j)];
+			double delta;
+			if (succ(i) == j){
+				if (pa == b) return; //a cycle of two vertices
+				delta = graph.getWeight(pa, b) + graph.getWeight(a, nb) - graph.getWeight(pa, a) - graph.getWeight(b, nb);
+			} else {
+				int na = order[succ(i)];
+				int pb = order[pred(j)];
+				delta = graph.getWeight(pa, b) + graph.getWeight(b, na) + graph.getWeight(pb, a) + graph.getWeight(a, nb)
+						- graph.getWeight(pa, a) - graph.getWeight(a, na) - graph.getWeight(pb, b) - graph.getWeight(b, nb);
+			}
+			if (!accept(delta)) return;
+			leave(delta);
+			order[i] = b;
+			pos[b] = i;
+			order[j] = a;
+			pos[a] = j;
+			length += delta;
+			accepted++;
+			record();
+		}
+
+		/**
+		 * Saves the current tour as the replica's best before an uphill move leaves it
+		 * @param delta the change in length of the move about to be applied
+		 */
+		private void leave(double delta){
+			if (delta > 0 && atBest){
+				System.arraycopy(order, 0, bestOrder, 0, order.length);
+				atBest = false;
+			}
+		}
+
+		/**
+		 * Notes a new shortest tour after a move. Only the length is kept; the order is copied by
+		 * leave if a later move makes the tour longer again.
+		 */
+		private void record(){
+			if (length < bestLength - 1e-9){
+				bestLength = length;
+				atBest = true;
+			}
+		}
+
+		/**
+		 * The Metropolis rule
+		 * @param delta the change in length
+		 * @return true if the move should be applied
+		 */
+		private boolean accept(double delta){
+			if (delta <= 0) return true;
+			return nextDouble() < Math.exp(-delta / temperature);
+		}
+
+		/**
+		 * Reverses the cyclic segment from position i forward to position j, or its shorter complement
+		 * @param i the first position
+		 * @param j the last position
+		 */
+		private void reverse(int i, int j){
+			int N = order.length;
+			int len = ((j - i + N) % N) + 1;
+			if (2 * len > N){
+				int t = succ(j);
+				j = pred(i);
+				i = t;
+				len = N - len;
+			}
+			for (int s = 0; s < len / 2; s++){
+				int x = order[i];
+				int y = order[j];
+				order[i] = y;
+				pos[y] = i;
+				order[j] = x;
+				pos[x] = j;
+				i = succ(i);
+				j = pred(j);
+			}
+		}
+
+		/**
+		 * The position after p
+		 * @param p a position
+		 * @return the next position
+		 */
+		private int succ(int p){
+			return ++p == order.length ? 0 : p;
+		}
+
+		/**
+		 * The position before p
+		 * @param p a position
+		 * @return the previous position
+		 */
+		private int pred(int p){
+			return p == 0 ? order.length - 1 : p - 1;
+		}
+
+		/**
+		 * Advances the xorshift generator
+		 * @return 64 random bits
+		 */
+		private long next(){
+			long x = state;
+			x ^= x << 13;
+			x ^= x >>> 7;
+			x ^= x << 17;
+			state = x;
+			return x;
+		}
+
+		/**
+		 * A random double in [0, 1)
+		 * @return the random double
+		 */
+		private double nextDouble(){
+			return (next() >>> 11) * 0x1.0p-53;
+		}
+
+		/**
+		 * A random int in [0, n)
+		 * @param n the bound
+		 * @return the random int
+		 */
+		private int nextInt(int n){
+			return (int) (((next() >>> 32) * n) >>> 32);
+		}
+	}
+
+	/**
+	 * Constructor for the annealer
+	 * @param graph the graph to solve
+	 * @param start any starting path, N+1 entries starting and ending at vertex 0
+	 * @param k the number of candidate neighbors per vertex
+	 */
+	public AnnealingTSP(Graph graph, int[] start, int k){
+		this.graph = graph;
+		this.neighbors = CandidateLists.spatial(graph, k);
+		this.best = new AtomicReference<Tour>(new Tour(start, graph.tourLength(start)));
+	}
+
+	/**
+	 * Runs the replicas until the deadline
+	 * @param count the number of replicas, one thread each
+	 * @param budget the time budget in milliseconds
+	 * @param seed the seed of the replicas' generators
+	 * @return the best tour
+	 */
+	public Tour solve(int count, long budget, long seed) throws InterruptedException{
+		int N = graph.getN();
+		int[] start = best.get().getPath();
+		double hot = best.get().getLength() / N; //the average edge of the starting tour
+		double cold = hot / 100;
+		ladder = new double[count];
+		slot = new int[count];
+		replicas = new Replica[count];
+		for (int r = 0; r < count; r++){
+			ladder[r] = count == 1 ? hot : cold * Math.pow(hot / cold, (double) r / (count - 1));
+			slot[r] = r;
+			replicas[r] = new Replica(start, seed * 0x2545F4914F6CDD1DL + r + 1);
+			replicas[r].temperature = ladder[r];
+		}
+		long begin = System.currentTimeMillis();
+		long deadline = begin + budget;
+		cooling = 1.0;
+		CyclicBarrier barrier = new CyclicBarrier(count, () -> exchange(begin, deadline));
+		Thread[] threads = new Thread[count];
+		for (int r = 0; r < count; r++){
+			replicas[r].barrier = barrier;
+			threads[r] = new Thread(replicas[r], "replica-" + r);
+			threads[r].start();
+		}
+		for (Thread thread : threads){
+			thread.join();
+		}
+		return best.get();
+	}
+
+	/**
+	 * The barrier action, run by the last replica to arrive while every other replica waits.
+	 * Publishes the replicas' best tours, exchanges neighboring temperatures and cools the ladder.
+	 * @param begin the time the run started
+	 * @param deadline the time to stop at
+	 */
+	private void exchange(long begin, long deadline){
+		for (Replica replica : replicas){
+			if (replica.bestLength < best.get().getLength() - 1e-9){
+				Tour.fromOrder(replica.atBest ? replica.order : replica.bestOrder, replica.path);
+				best.set(new Tour(replica.path, graph.tourLength(replica.path))); //recomputed to drop the drift of the deltas
+			}
+		}
+		for (int r = 0; r + 1 < slot.length; r++){
+			Replica cold = replicas[slot[r]];
+			Replica warm = replicas[slot[r + 1]];
+			double p = (cold.length - warm.length) * (1 / cold.temperature - 1 / warm.temperature);
+			if (p >= 0 || cold.nextDouble() < Math.exp(p)){
+				int t = slot[r];
+				slot[r] = slot[r + 1];
+				slot[r + 1] = t;
+				swaps++;
+			}
+		}
+		long now = System.currentTimeMillis();
+		cooling = Math.pow(0.01, (double) (now - begin) / Math.max(1, deadline - begin)); //down a hundredfold by the deadline
+		for (int r = 0; r < slot.length; r++){
+			replicas[slot[r]].temperature = ladder[r] * cooling;
+		}
+		if (now >= deadline || Thread.currentThread().isInterrupted()) done = true;
+	}
+
+	/**
+	 * Gets the number of moves evaluated by every replica
+	 * @return the number of moves
+	 */
+	public long getAttempted(){
+		long total = 0;
+		for (Replica replica : replicas) total += replica.attempted;
+		return total;
+	}
+
+	/**
+	 * Gets the number of moves applied by every replica
+	 * @return the number of accepted moves
+	 */
+	public long getAccepted(){
+		long total = 0;
+		for (Replica replica : replicas) total += replica.accepted;
+		return total;
+	}
+
+	/**
+	 * Gets the number of accepted temperature exchanges
+	 * @return the number of exchanges
+	 */
+	public long getSwaps(){
+		return swaps;
+	}
+
+	/**
+	 * Builds the starting tour with one of the existing constructors
+	 * @param name greedy, mst or bitonic
+	 * @param graph the graph
+	 * @return the path, or null if the name is unknown
+	 */
+	static int[] start(String name, Graph graph){
+		switch (name){
+		case "greedy": return GreedyTSP.tour(graph);
+		case "mst": return MstTSP.tour(graph);
+		case "bitonic": return BitonicTSP.tour(graph);
+		default: return null;
+		}
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java AnnealingTSP n seed [-t millis] [-r replicas] [-s greedy|mst|bitonic] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 5000;
+		int count = Runtime.getRuntime().availableProcessors();
+		String from = "greedy";
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-r")) count = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-s")) from = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 5 || count < 1){
+			System.out.println("Need at least 5 vertices and 1 replica");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		int[] start = start(from, graph);
+		if (start == null){
+			System.out.println("Unknown starting tour: " + from);
+			System.exit(0);
+		}
+		long begin = System.currentTimeMillis();
+		AnnealingTSP sa = new AnnealingTSP(graph, start, 10);
+		Tour best = sa.solve(count, budget, seed);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using annealing: ", best.getLength(), best.getPath());
+		out.printf("Moves: %d evaluated (%s million per second), %s%% accepted, %d exchanges on %d replicas\n",
+				sa.getAttempted(), df.format(sa.getAttempted() / 1000.0 / Math.max(1, end - begin)),
+				df.format(100.0 * sa.getAccepted() / Math.max(1, sa.getAttempted())), sa.getSwaps(), count);
+		out.printf("Runtime for annealing TSP   : %d milliseconds\n\n", end - begin);
+		out.close();
+	}
+}
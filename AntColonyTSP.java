@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A MAX-MIN ant system. Ants build tours in parallel worker threads, moving only along k-nearest
+ * candidate edges, and each tour is polished by 2-opt. Pheromone lives in a flat float store with one
+ * entry per candidate edge, so its memory is O(N k) instead of the O(N^2) of the graph matrix. The
+ * store is split into row stripes, one per worker, and each worker evaporates and deposits on its own
+ * stripe, so the update needs no lock at all.
+ */
+public class AntColonyTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final double ALPHA = 1.0; //the weight of the pheromone
+	private static final double BETA = 2.0; //the weight of the visibility 1/d
+	private static final double RHO = 0.2; //the evaporation rate
+
+	private Graph graph; //the shared, read-only graph
+	private int N; //the number of vertices
+	private int k; //the number of candidates per vertex
+	private int[][] neighbors; //the candidate lists
+	private float[] pheromone; //the pheromone of candidate slot s of vertex v at v*k + s
+	private float[] visibility; //(1/d)^beta of every candidate slot, fixed
+	private float[] choice; //pheromone^alpha * visibility, refreshed after every update
+	private float tauMax; //the upper pheromone limit
+	private float tauMin; //the lower pheromone limit
+	private Tour best; //the best tour found
+	private long iterations; //the number of colony iterations run
+
+	/**
+	 * The buffers of one worker thread, reused across iterations
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Worker {
+		private SplittableRandom random; //the worker's own generator
+		private TwoOpt search; //the worker's local search
+		private boolean[] visited; //the vertices the current ant has visited
+		private int[] order; //the current ant's tour in the order it was walked
+		private int[] path; //the current ant's tour rotated to start at vertex 0
+		private int[] bestPath; //the best tour of this worker in the current iteration
+		private double bestLength; //its length
+		private double[] weights; //the roulette weights of the current step
+		private int from; //the first row of this worker's pheromone stripe
+		private int to; //one past the last row of the stripe
+
+		/**
+		 * Constructor for a worker
+		 * @param random the generator
+		 * @param from the first row of the stripe
+		 * @param to one past the last row of the stripe
+		 */
+		public Worker(SplittableRandom random, int from, int to){
+			this.random = random;
+			this.search = new TwoOpt(graph, neighbors);
+			this.visited = new boolean[N];
+			this.order = new int[N];
+			this.path = new int[N + 1];
+			this.bestPath = new int[N + 1];
+			this.weights = new double[k];
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Builds and polishes a number of ant tours, keeping the best
+		 * @param ants the number of ants
+		 */
+		public void construct(int ants){
+			bestLength = Double.POSITIVE_INFINITY;
+			for (int a = 0; a < ants; a++){
+				walk();
+				double length = search.improve(path);
+				if (length < bestLength){
+					bestLength = length;
+					System.arraycopy(path, 0, bestPath, 0, N + 1);
+				}
+			}
+		}
+
+		/**
+		 * Builds one ant tour from a random start, choosing each step by roulette over the
+		 * unvisited candidates and falling back to the nearest unvisited vertex
+		 */
+		private void walk(){
+			Arrays.fill(visited, false);
+			int cur = random.nextInt(N);
+			order[0] = cur;
+			visited[cur] = true;
+			for (int i = 1; i < N; i++){
+				int base = cur * k;
+				double total = 0.0;
+				for (int s = 0; s < k; s++){
+					weights[s] = visited[neighbors[cur][s]] ? 0.0 : choice[base + s];
+					total += weights[s];
+				}
+				int next = -1;
+				if (total > 0){
+					double r = random.nextDouble() * total;
+					for (int s = 0; s < k; s++){
+						if (weights[s] == 0) continue;
+						next = neighbors[cur][s];
+						r -= weights[s];
+						if (r <= 0) break;
+					}
+				} else {
+					double nearest = Double.POSITIVE_INFINITY;
+					for (int v = 0; v < N; v++){
+						if (!visited[v] && graph.getWeight(cur, v) < nearest){
+							nearest = graph.getWeight(cur, v);
+							next = v;
+						}
+					}
+				}
+				order[i] = next;
+				visited[next] = true;
+				cur = next;
+			}
+			Tour.fromOrder(order, path);
+		}
+
+		/**
+		 * Evaporates, deposits and refreshes the choice values of this worker's stripe only
+		 * @param deposit the tour to reinforce
+		 * @param amount the pheromone added to each of its edges
+		 */
+		public void update(int[] deposit, float amount){
+			for (int i = from * k; i < to * k; i++){
+				pheromone[i] = Math.max(tauMin, pheromone[i] * (float) (1 - RHO));
+			}
+			for (int i = 0; i < N; i++){
+				int u = deposit[i];
+				int v = deposit[i + 1];
+				if (u >= from && u < to) reinforce(u, v, amount);
+				if (v >= from && v < to) reinforce(v, u, amount);
+			}
+			for (int i = from * k; i < to * k; i++){
+				choice[i] = (float) (Math.pow(pheromone[i], ALPHA) * visibility[i]);
+			}
+		}
+
+		/**
+		 * Adds pheromone to the candidate slot of v in the row of u, if v is a candidate of u
+		 * @param u the row
+		 * @param v the candidate
+		 * @param amount the pheromone to add
+		 */
+		private void reinforce(int u, int v, float amount){
+			for (int s = 0; s < k; s++){
+				if (neighbors[u][s] == v){
+					pheromone[u * k + s] = Math.min(tauMax, pheromone[u * k + s] + amount);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor for the colony
+	 * @param graph the graph to solve
+	 * @param k the number of candidates per vertex
+	 */
+	public AntColonyTSP(Graph graph, int k){
+		this.graph = graph;
+		this.N = graph.getN();
+		this.neighbors = CandidateLists.spatial(graph, k);
+		this.k = neighbors[0].length;
+		this.pheromone = new float[N * this.k];
+		this.visibility = new float[N * this.k];
+		this.choice = new float[N * this.k];
+		for (int v = 0; v < N; v++){
+			for (int s = 0; s < this.k; s++){
+				double d = Math.max(graph.getWeight(v, neighbors[v][s]), 1e-9);
+				visibility[v * this.k + s] = (float) Math.pow(1 / d, BETA);
+			}
+		}
+	}
+
+	/**
+	 * Runs the colony until the deadline, always at least one iteration so there is a tour to return
+	 * @param threads the number of worker threads
+	 * @param ants the number of ants per iteration
+	 * @param budget the time budget in milliseconds
+	 * @param seed the seed of the workers' generators
+	 * @return the best tour
+	 */
+	public Tour solve(int threads, int ants, long budget, long seed) throws InterruptedException, ExecutionException{
+		long deadline = System.currentTimeMillis() + budget;
+		SplittableRandom root = new SplittableRandom(seed);
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int t = 0; t < threads; t++){
+			workers.add(new Worker(root.split(), t * N / threads, (t + 1) * N / threads));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			System.arraycopy(visibility, 0, choice, 0, choice.length); //the first iteration is guided by visibility alone
+			int[] iterationBest = new int[N + 1];
+			while (iterations == 0 || (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted())){
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (int t = 0; t < threads; t++){
+					Worker worker = workers.get(t);
+					int share = ants / threads + (t < ants % threads ? 1 : 0);
+					tasks.add(() -> { worker.construct(share); return null; });
+				}
+				run(pool, tasks);
+				double iterationLength = Double.POSITIVE_INFINITY;
+				for (Worker worker : workers){
+					if (worker.bestLength < iterationLength){
+						iterationLength = worker.bestLength;
+						System.arraycopy(worker.bestPath, 0, iterationBest, 0, N + 1);
+					}
+				}
+				if (best == null || iterationLength < best.getLength()){
+					best = new Tour(iterationBest, iterationLength);
+					tauMax = (float) (1 / (RHO * best.getLength()));
+					tauMin = tauMax / (2 * N);
+					if (iterations == 0) Arrays.fill(pheromone, tauMax);
+				}
+				int[] deposit = iterations % 2 == 0 ? iterationBest : best.getPath(); //alternates like MMAS
+				float amount = (float) (1 / (iterations % 2 == 0 ? iterationLength : best.getLength()));
+				tasks.clear();
+				for (Worker worker : workers){
+					tasks.add(() -> { worker.update(deposit, amount); return null; });
+				}
+				run(pool, tasks);
+				iterations++;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return best;
+	}
+
+	/**
+	 * Runs a batch of tasks on the pool and waits for all of them
+	 * @param pool the pool
+	 * @param tasks the tasks
+	 */
+	private static void run(ExecutorService pool, List<Callable<Void>> tasks) throws InterruptedException, ExecutionException{
+		for (Future<Void> future : pool.invokeAll(tasks)){
+			future.get(); //rethrows any failure of a worker
+		}
+	}
+
+	/**
+	 * Gets the number of colony iterations run
+	 * @return the number of iterations
+	 */
+	public long getIterations(){
+		return iterations;
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java AntColonyTSP n seed [-t millis] [-w threads] [-a ants] [-k candidates] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 5000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int ants = 16;
+		int k = 15;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-w")) threads = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-a")) ants = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-k")) k = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 3 || threads < 1 || ants < 1 || k < 1){
+			System.out.println("Need at least 3 vertices, 1 thread, 1 ant and 1 candidate");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		AntColonyTSP colony = new AntColonyTSP(graph, k);
+		threads = Math.min(threads, N); //every thread needs a share of the vertices
+		Tour best = colony.solve(threads, ants, budget, seed);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using ant colony: ", best.getLength(), best.getPath());
+		out.printf("Iterations: %d with %d ants on %d threads\n", colony.getIterations(), ants, threads);
+		out.printf("Runtime for ant colony TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
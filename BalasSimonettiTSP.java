@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The Balas-Simonetti neighborhood as an improvement operator. Given a tour, it finds the shortest
+ * tour in which every city that was k or more positions ahead of another still comes after it, so
+ * each city moves fewer than k positions. Like BitonicTSP.TourFinder it is a dynamic program over
+ * the order of the vertices, but its state only covers a window of 2k positions: the first city not
+ * yet placed, which of the next k-1 cities were placed ahead of it, and which city was placed last.
+ * That gives O(N k^2 2^k) time and O(k 2^k) costs per position, against the O(N^2) tables of the
+ * bitonic tour.
+ *
+ * The tour is cut into blocks whose end vertices stay in place, so the back-pointer table of a block
+ * stays small and the blocks of a pass can run in parallel on their own reused tables. Passes
+ * alternate the block boundaries by half a block, so no boundary stays fixed from one pass to the next.
+ */
+public class BalasSimonettiTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int TABLE = 1 << 24; //the back-pointer bytes of one block, which sets its length
+
+	private Graph graph; //the graph being toured
+	private int k; //the window: cities k or more positions apart keep their order
+	private int S; //the states of one position, 2^(k-1) masks by 2k last cities
+	private int block; //the free positions of a block
+	private ThreadLocal<Tables> tables; //the reused tables of each thread
+
+	/**
+	 * Private helper class holding the tables of one block, reused for every block a thread solves
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Tables {
+		private double[] cost = new double[(k + 1) * S]; //the costs of the k+1 positions in flight, by position mod k+1
+		private byte[] back = new byte[(block + 2) * S]; //the last city before each state, relative to its position
+		private int[] seg = new int[block + 2]; //the vertices of the block, its two fixed ends included
+		private int[] order = new int[block + 2]; //the best order of the block's cities
+	}
+
+	/**
+	 * Constructor for the operator
+	 * @param graph the graph
+	 * @param k the window, between 2 and 12
+	 */
+	public BalasSimonettiTSP(Graph graph, int k){
+		this.graph = graph;
+		this.k = k;
+		this.S = (1 << (k - 1)) * 2 * k;
+		this.block = Math.max(2 * k, Math.min(graph.getN() - 1, TABLE / S - 2));
+		this.tables = ThreadLocal.withInitial(Tables::new);
+	}
+
+	/**
+	 * Improves a tour in place until a pass finds nothing or the passes run out
+	 * @param path the path, N+1 entries starting and ending at vertex 0, which stays in place
+	 * @param passes the most passes
+	 * @return the new length of the tour
+	 */
+	public double improve(int[] path, int passes){
+		int N = graph.getN();
+		for (int p = 0; p < passes; p++){
+			int offset = p % 2 == 0 || block >= N - 1 ? 0 : (block + 1) / 2;
+			int count = 0;
+			int[] bounds = new int[N / (block + 1) + 3]; //the positions of the fixed ends, first to last
+			bounds[count++] = 0;
+			for (int s = offset; s < N; s += block + 1){
+				if (s > 0) bounds[count++] = s;
+			}
+			bounds[count++] = N;
+			int blocks = count - 1;
+			double gain = IntStream.range(0, blocks).parallel()
+					.mapToDouble(b -> solve(path, bounds[b], bounds[b + 1])).sum();
+			if (gain < 1e-9) break;
+		}
+		return graph.tourLength(path);
+	}
+
+	/**
+	 * Reorders the cities strictly between two positions of the path, keeping both ends in place
+	 * @param path the path
+	 * @param s the position of the first fixed end
+	 * @param e the position of the second fixed end
+	 * @return how much shorter the path became
+	 */
+	private double solve(int[] path, int s, int e){
+		int n = e - s - 1; //the cities of the block, numbered 1..n, with the ends numbered 0 and n+1
+		if (n < 2) return 0.0;
+		Tables t = tables.get();
+		int[] seg = t.seg;
+		double before = 0.0;
+		for (int i = 0; i <= n + 1; i++){
+			seg[i] = path[s + i];
+			if (i > 0) before += graph.getWeight(seg[i - 1], seg[i]);
+		}
+		double[] cost = t.cost;
+		byte[] back = t.back;
+		int L = 2 * k; //the last-city offsets of a state
+		int masks = 1 << (k - 1);
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		cost[(1 % (k + 1)) * S + (k - 1)] = 0.0; //the first city not placed is 1, and the last one placed is the end 0
+		for (int m = 1; m <= n; m++){
+			int from = (m % (k + 1)) * S;
+			for (int mask = 0; mask < masks; mask++){
+				if (mask != 0 && m + 32 - Integer.numberOfLeadingZeros(mask) > n) break; //a placed city past the block
+				for (int loff = 0; loff < L; loff++){
+					double c0 = cost[from + mask * L + loff];
+					if (c0 == Double.POSITIVE_INFINITY) continue;
+					int last = m - k + loff;
+					for (int c = m; c <= n && c < m + k; c++){ //the next city: m or any unplaced city of the window
+						int m2 = m;
+						int mask2;
+						if (c == m){
+							int run = Integer.numberOfTrailingZeros(~mask); //the placed cities right after m
+							m2 = m + 1 + run;
+							mask2 = mask >>> (run + 1);
+						} else {
+							if ((mask & (1 << (c - m - 1))) != 0) continue;
+							mask2 = mask | (1 << (c - m - 1));
+						}
+						int state = mask2 * L + c - (m2 - k);
+						double c2 = c0 + graph.getWeight(seg[last], seg[c]);
+						int to = (m2 % (k + 1)) * S + state;
+						if (c2 < cost[to]){
+							cost[to] = c2;
+							back[m2 * S + state] = (byte) (last - m2 + 2 * k);
+						}
+					}
+				}
+			}
+			Arrays.fill(cost, from, from + S, Double.POSITIVE_INFINITY); //reused for position m+k+1
+		}
+		int done = ((n + 1) % (k + 1)) * S; //every city placed: the first unplaced one is the far end
+		double best = Double.POSITIVE_INFINITY;
+		int last = 0;
+		for (int loff = 0; loff < L; loff++){
+			int l = n + 1 - k + loff;
+			if (l < 0 || l > n || cost[done + loff] == Double.POSITIVE_INFINITY) continue;
+			double c = cost[done + loff] + graph.getWeight(seg[l], seg[n + 1]);
+			if (c < best){
+				best = c;
+				last = l;
+			}
+		}
+		if (best >= before - 1e-9) return 0.0;
+		int[] order = t.order;
+		for (int pos = n, m = n + 1, mask = 0; pos >= 1; pos--){ //walks the back-pointers, removing the last city each time
+			order[pos] = last;
+			int prev = back[m * S + mask * L + last - (m - k)] + m - 2 * k;
+			if (last < m){
+				int m2 = last;
+				int mask2 = 0;
+				for (int j = last + 1; j < last + k; j++){
+					boolean placed = j < m || (j > m && j - m - 1 < k - 1 && (mask & (1 << (j - m - 1))) != 0);
+					if (placed) mask2 |= 1 << (j - last - 1);
+				}
+				m = m2;
+				mask = mask2;
+			} else {
+				mask &= ~(1 << (last - m - 1));
+			}
+			last = prev;
+		}
+		for (int i = 1; i <= n; i++){
+			path[s + i] = seg[order[i]];
+		}
+		return before - best;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java BalasSimonettiTSP n seed [-k window] [-p passes] [-s " + Solvers.NAMES + "] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int k = 7;
+		int passes = 10;
+		String solver = "greedy";
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-k")) k = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-p")) passes = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-s")) solver = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 || k < 2 || k > 12 || passes < 1){
+			System.out.println("Need at least 1 vertex, a window between 2 and 12 and at least 1 pass");
+			System.exit(0);
+		}
+		if (!Solvers.isKnown(solver)){
+			System.out.println("Starting solver must be one of " + Solvers.NAMES);
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		int[] path = Solvers.solve(solver, graph);
+		out.printf("Starting %s tour: %s\n", solver, df.format(graph.tourLength(path)));
+		long start = System.currentTimeMillis();
+		double length = new BalasSimonettiTSP(graph, k).improve(path, passes);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using balas-simonetti: ", length, path);
+		out.printf("Runtime for balas-simonetti TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.text.DecimalFormat;
 
 /**
@@ -242,9 +243,31 @@ public class BitonicTSP {
 		}
 	}
 	
-	public static void main(String args[]){
+	/**
+	 * Finds the optimal bitonic tour
+	 * @param graph the graph
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph){
+		int N = graph.getN();
+		if (N < 3){ //every tour is bitonic
+			int[] path = new int[N + 1];
+			if (N == 2) path[1] = 1;
+			return path;
+		}
+		int[] vertices = new int[N];
+		for (int i = 0; i < N; i++){
+			vertices[i] = i;
+		}
+		VertexSort.sort(vertices, graph);
+		TourFinder btFinder = new TourFinder(graph, N);
+		btFinder.findTour(vertices);
+		return btFinder.backTrace();
+	}
+	
+	public static void main(String args[]) throws IOException{
 		if (args.length < 2){ // checks to see if the number of arguments is correct
-			System.out.println("Usage: java GreedyTSP n seed");
+			System.out.println("Usage: java BitonicTSP n seed [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
 			System.exit(0);
 		}
 		int N;
@@ -262,8 +285,9 @@ public class BitonicTSP {
 			System.out.println("Number of vertices must be greater than 0");
 			System.exit(0);
 		}
-		Graph graph = new Graph(N, seed);//creates the graph with the given N and seed
-		if (N <= 10){ //if the number of vertices is less than 10, then print the vertices and the matrix
+		TourWriter out = TourWriter.fromArgs(args); //the output stage for the tour and diagnostics
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		if (N <= 10 && !out.isQuiet()){ //if the number of vertices is less than 10, then print the vertices and the matrix
 			graph.printVertices();//prints the vertices
 			graph.printMatrix();//prints the graph representation
 		}
@@ -276,7 +300,7 @@ public class BitonicTSP {
 		VertexSort.sort(vertices, graph); //sort by increasing x-coordinate
 		
 		btFinder.findTour(vertices); //finds the N-table and L-table
-		if (N <= 10){ //Does all print jobs
+		if (N <= 10 && !out.isQuiet()){ //Does all print jobs
 			System.out.println("Sorted X-Y Coordinates:");
 			for (int v : vertices){
 				graph.printVertex(v);
@@ -286,16 +310,13 @@ public class BitonicTSP {
 			System.out.println();
 			btFinder.printNTable();
 		}
-		System.out.println();
+		out.printf("\n");
 		int [] result = btFinder.backTrace(); //get the path
 		double distance = btFinder.getDistance(); //get the distance
 		long end =  System.currentTimeMillis(); // stop measuring time
-		System.out.printf("Distance using bitonic: %s for path ", df.format(distance)); //print results and distance
-		for (int v: result){
-			System.out.printf("%d ", v);
-		}
-		System.out.println();
-		System.out.printf("Runtime for bitonic TSP   : %d milliseconds\n\n", end - start);
+		out.writeTour("Distance using bitonic: ", distance, result); //print results and distance
+		out.printf("Runtime for bitonic TSP   : %d milliseconds\n\n", end - start);
+		out.close();
 	}
 }
 	
@@ -0,0 +1,160 @@
+import java.util.stream.IntStream;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Builds k-nearest neighbor candidate lists over a graph. Local search and the constructors only
+ * look at these lists instead of every vertex, which keeps their moves close to O(N k).
+ */
+public class CandidateLists {
+
+	/**
+	 * Finds the k nearest vertices of every vertex. Rows are computed in parallel.
+	 * @param graph the graph
+	 * @param k the number of neighbors per vertex, capped at N-1
+	 * @return for each vertex its k nearest vertices ordered by increasing weight
+	 */
+	public static int[][] nearest(Graph graph, int k){
+		int N = graph.getN();
+		int size = Math.max(0, Math.min(k, N - 1));
+		int[][] neighbors = new int[N][];
+		IntStream.range(0, N).parallel().forEach(v -> neighbors[v] = row(graph, v, size));
+		return neighbors;
+	}
+
+	/**
+	 * Finds about the k nearest vertices of every vertex through a PointGrid, in O(N k) rather than the
+	 * O(N^2) of nearest, for graphs too large to scan. Neighbors are picked by straight-line distance
+	 * on the coordinates, so the lists are exact for the euclidean metrics only.
+	 * @param graph the graph
+	 * @param k the number of neighbors per vertex, capped at N-1
+	 * @return for each vertex its neighbors ordered by increasing weight
+	 */
+	public static int[][] spatial(Graph graph, int k){
+		int N = graph.getN();
+		int size = Math.max(0, Math.min(k, N - 1));
+		PointGrid grid = new PointGrid(graph.getVertices(), N);
+		for (int v = 0; v < N; v++){
+			grid.add(v);
+		}
+		int[][] neighbors = new int[N][];
+		IntStream.range(0, N).parallel().forEach(v -> {
+			int[] found = new int[size + 1];
+			double[] dist = new double[size + 1];
+			int count = grid.nearest(v, size + 1, found, dist);
+			int[] ids = new int[size];
+			double[] weights = new double[size];
+			int n = 0;
+			for (int j = 0; j < count && n < size; j++){
+				int w = found[j];
+				if (w == v) continue;
+				double weight = graph.getWeight(v, w);
+				int i = n++;
+				while (i > 0 && weights[i - 1] > weight){ //reorders by the graph's own metric
+					weights[i] = weights[i - 1];
+					ids[i] = ids[i - 1];
+					i--;
+				}
+				weights[i] = weight;
+				ids[i] = w;
+			}
+			neighbors[v] = ids;
+		});
+		return neighbors;
+	}
+
+	/**
+	 * Updates the lists after a vertex was added to the graph or moved. Its own row is recomputed,
+	 * rows that listed it are recomputed, and it is inserted into any other row it is now near enough
+	 * to join; the remaining rows are untouched.
+	 * @param graph the graph, already updated
+	 * @param neighbors the lists, at least N rows
+	 * @param v the vertex that was added or moved
+	 * @param k the number of neighbors per vertex, capped at N-1
+	 */
+	public static void update(Graph graph, int[][] neighbors, int v, int k){
+		int N = graph.getN();
+		int size = Math.max(0, Math.min(k, N - 1));
+		neighbors[v] = row(graph, v, size);
+		for (int u = 0; u < N; u++){
+			if (u == v) continue;
+			int[] ids = neighbors[u];
+			if (ids.length != size || contains(ids, v)){
+				neighbors[u] = row(graph, u, size);
+			} else if (size > 0 && graph.getWeight(u, v) < graph.getWeight(u, ids[size - 1])){
+				int i = size - 1;
+				while (i > 0 && graph.getWeight(u, ids[i - 1]) > graph.getWeight(u, v)){
+					ids[i] = ids[i - 1];
+					i--;
+				}
+				ids[i] = v;
+			}
+		}
+	}
+
+	/**
+	 * Updates the lists after Graph.removeVertex, which gave the last vertex the removed one's number.
+	 * Rows that listed the removed vertex are recomputed and the last vertex is renamed everywhere else.
+	 * @param graph the graph, already updated
+	 * @param neighbors the lists, still numbered as before the removal
+	 * @param v the number of the removed vertex
+	 * @param moved the former number of the vertex now numbered v
+	 * @param k the number of neighbors per vertex, capped at N-1
+	 */
+	public static void remove(Graph graph, int[][] neighbors, int v, int moved, int k){
+		int N = graph.getN();
+		int size = Math.max(0, Math.min(k, N - 1));
+		neighbors[v] = neighbors[moved];
+		neighbors[moved] = null;
+		for (int u = 0; u < N; u++){
+			int[] ids = neighbors[u];
+			if (ids.length != size || contains(ids, v)){
+				neighbors[u] = row(graph, u, size);
+				continue;
+			}
+			for (int i = 0; i < size; i++){
+				if (ids[i] == moved) ids[i] = v;
+			}
+		}
+	}
+
+	/**
+	 * Determines if a list holds a vertex
+	 * @param ids the list
+	 * @param v the vertex
+	 * @return true if v is in the list
+	 */
+	private static boolean contains(int[] ids, int v){
+		for (int id : ids){
+			if (id == v) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the k nearest vertices of one vertex with an insertion-sorted buffer
+	 * @param graph the graph
+	 * @param v the vertex
+	 * @param k the number of neighbors
+	 * @return the k nearest vertices ordered by increasing weight
+	 */
+	private static int[] row(Graph graph, int v, int k){
+		int N = graph.getN();
+		int[] ids = new int[k];
+		double[] weights = new double[k];
+		int count = 0;
+		for (int w = 0; w < N; w++){
+			if (w == v) continue;
+			double weight = graph.getWeight(v, w);
+			if (count == k && weight >= weights[k - 1]) continue;
+			int i = count < k ? count++ : k - 1;
+			while (i > 0 && weights[i - 1] > weight){ //shift the heavier neighbors down
+				weights[i] = weights[i - 1];
+				ids[i] = ids[i - 1];
+				i--;
+			}
+			weights[i] = weight;
+			ids[i] = w;
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,167 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A binary snapshot of a long run, so a killed or preempted process can continue where it stopped.
+ * The solver writes its own state after a header naming the solver and the instance; the file is
+ * written to a temporary file, synced and renamed over the old one, so a crash mid-write leaves the
+ * previous checkpoint intact. Solvers take -checkpoint file, -every millis and --resume.
+ */
+public class Checkpoint {
+	private static final int MAGIC = 0x54535043; //"TSPC", the first four bytes of every checkpoint
+
+	private Path file; //the checkpoint
+	private Path temp; //the file written before the rename
+	private long interval; //the time between snapshots in milliseconds
+	private long saved; //the time of the last snapshot
+
+	/**
+	 * The solver-specific part of a checkpoint
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	public interface Body {
+		/**
+		 * Writes the solver's state
+		 * @param out the stream, positioned after the header
+		 */
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Constructor for a checkpoint
+	 * @param file the file name
+	 * @param interval the time between snapshots in milliseconds
+	 */
+	public Checkpoint(String file, long interval){
+		this.file = Paths.get(file);
+		this.temp = Paths.get(file + ".tmp");
+		this.interval = interval;
+		this.saved = System.currentTimeMillis();
+	}
+
+	/**
+	 * Builds a checkpoint from the flags -checkpoint file and -every millis
+	 * @param args the command line arguments
+	 * @return the checkpoint, or null if no file was given
+	 */
+	public static Checkpoint fromArgs(String[] args){
+		String file = null;
+		long interval = 60000;
+		for (int i = 2; i + 1 < args.length; i++){
+			if (args[i].equals("-checkpoint")) file = args[i + 1];
+			if (args[i].equals("-every")) interval = Long.parseLong(args[i + 1]);
+		}
+		return file == null ? null : new Checkpoint(file, interval);
+	}
+
+	/**
+	 * Determines if the run should continue from the checkpoint
+	 * @param args the command line arguments
+	 * @return true if --resume was given
+	 */
+	public static boolean isResume(String[] args){
+		for (String arg : args){
+			if (arg.equals("--resume")) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Determines if a snapshot is due. Cheap enough to call from a hot loop every few thousand steps.
+	 * @return true if the interval has passed since the last snapshot
+	 */
+	public boolean isDue(){
+		return System.currentTimeMillis() - saved >= interval;
+	}
+
+	/**
+	 * Gets the time between snapshots
+	 * @return the interval in milliseconds
+	 */
+	public long getInterval(){
+		return interval;
+	}
+
+	/**
+	 * Writes a snapshot and atomically replaces the previous one
+	 * @param solver the name of the solver
+	 * @param graph the instance
+	 * @param seed the seed of the instance
+	 * @param body the solver's state
+	 */
+	public void save(String solver, Graph graph, long seed, Body body) throws IOException{
+		try (FileOutputStream file = new FileOutputStream(temp.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))){
+			out.writeInt(MAGIC);
+			out.writeUTF(solver);
+			out.writeInt(graph.getN());
+			out.writeLong(seed);
+			out.writeUTF(String.valueOf(graph.getMetric()));
+			body.write(out);
+			out.flush();
+			file.getFD().sync(); //on disk before it replaces the old snapshot
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		saved = System.currentTimeMillis();
+	}
+
+	/**
+	 * Opens the checkpoint to continue a run, checking that it belongs to the same solver and instance
+	 * @param solver the name of the solver
+	 * @param graph the instance
+	 * @param seed the seed of the instance
+	 * @return the stream positioned at the solver's state, or null if there is no checkpoint yet
+	 * @throws IOException if the file cannot be read or was written for another run
+	 */
+	public DataInputStream resume(String solver, Graph graph, long seed) throws IOException{
+		if (!Files.exists(file)) return null;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		if (in.readInt() != MAGIC || !in.readUTF().equals(solver) || in.readInt() != graph.getN()
+				|| in.readLong() != seed || !in.readUTF().equals(String.valueOf(graph.getMetric()))){
+			in.close();
+			throw new IOException(file + " is not a " + solver + " checkpoint of this instance");
+		}
+		return in;
+	}
+
+	/**
+	 * Removes the checkpoint once the run has finished
+	 */
+	public void delete() throws IOException{
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Writes an int array with its length
+	 * @param out the stream
+	 * @param a the array
+	 */
+	public static void writeInts(DataOutputStream out, int[] a) throws IOException{
+		out.writeInt(a.length);
+		for (int v : a){
+			out.writeInt(v);
+		}
+	}
+
+	/**
+	 * Reads an int array written by writeInts
+	 * @param in the stream
+	 * @return the array
+	 */
+	public static int[] readInts(DataInputStream in) throws IOException{
+		int[] a = new int[in.readInt()];
+		for (int i = 0; i < a.length; i++){
+			a[i] = in.readInt();
+		}
+		return a;
+	}
+}
@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The Christofides construction. The minimum spanning tree from MstTSP.prim has an even number of
+ * odd-degree vertices; pairing them up with a light perfect matching makes every degree even, so
+ * the tree plus the matching has an Eulerian circuit, found with an iterative Hierholzer walk over
+ * flat adjacency arrays. Shortcutting the circuit past repeated vertices gives the tour. The
+ * matching is greedy over the nearest odd vertices of each odd vertex rather than a minimum weight
+ * blossom matching, followed by 2-opt moves between pairs of matching edges, which keeps the
+ * matching near O(N log N) at the cost of the 1.5 guarantee.
+ */
+public class ChristofidesTSP {
+	private static final int K = 10; //the nearest odd vertices each odd vertex may be matched with per round
+
+	/**
+	 * Builds the Christofides tour
+	 * @param graph the graph, which is left untouched
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph){
+		int N = graph.getN();
+		Vertex[] tree = MstTSP.prim(graph, null);
+		int[] from = new int[2 * N]; //the first endpoint of every edge of the multigraph
+		int[] to = new int[2 * N]; //the second endpoint
+		int[] degree = new int[N];
+		int E = 0;
+		for (int i = 1; i < N; i++){
+			from[E] = tree[i].id;
+			to[E++] = tree[i].parent;
+			degree[tree[i].id]++;
+			degree[tree[i].parent]++;
+		}
+		int count = 0;
+		int[] odd = new int[N];
+		for (int v = 0; v < N; v++){
+			if (degree[v] % 2 == 1) odd[count++] = v;
+		}
+		odd = Arrays.copyOf(odd, count);
+		int[] mate = match(graph, odd);
+		improve(graph, odd, mate);
+		for (int v : odd){
+			if (v > mate[v]) continue; //each matching edge once
+			from[E] = v;
+			to[E++] = mate[v];
+		}
+		return shortcut(circuit(N, from, to, E), N);
+	}
+
+	/**
+	 * Pairs up the odd vertices greedily, lightest candidate pair first. Each round pairs every odd
+	 * vertex still unmatched with its nearest unmatched odd vertices, so the leftovers of one round
+	 * look farther in the next until none is left.
+	 * @param graph the graph
+	 * @param odd the odd-degree vertices, an even number of them
+	 * @return the partner of each odd vertex, by vertex
+	 */
+	private static int[] match(Graph graph, int[] odd){
+		int[] mate = new int[graph.getN()];
+		boolean[] matched = new boolean[graph.getN()];
+		int[][] pts = graph.getVertices();
+		odd = odd.clone(); //shrinks to the unmatched vertices after every round
+		while (odd.length > 0){
+			int k = Math.min(K, odd.length - 1);
+			PointGrid grid = new PointGrid(pts, odd.length);
+			for (int v : odd){
+				grid.add(v);
+			}
+			int[] candidates = new int[odd.length * k]; //slot a*k+j holds the j-th neighbor of odd[a]
+			long[] keys = new long[odd.length * k]; //the packed weight and slot of every pair
+			int pairs = 0;
+			int[] found = new int[k + 1];
+			double[] dist = new double[k + 1];
+			for (int a = 0; a < odd.length; a++){
+				int v = odd[a];
+				int n = grid.nearest(v, k + 1, found, dist);
+				for (int j = 0, slot = a * k; j < n && slot < (a + 1) * k; j++){
+					if (found[j] == v) continue;
+					candidates[slot] = found[j];
+					keys[pairs++] = ((long) Float.floatToIntBits((float) graph.getWeight(v, found[j])) << 32) | slot++; //weights are never negative, so the bits sort like the floats
+				}
+			}
+			Arrays.parallelSort(keys, 0, pairs);
+			for (int p = 0; p < pairs; p++){
+				int slot = (int) keys[p];
+				int v = odd[slot / k];
+				int u = candidates[slot];
+				if (matched[v] || matched[u]) continue;
+				matched[v] = true;
+				matched[u] = true;
+				mate[v] = u;
+				mate[u] = v;
+			}
+			int left = 0;
+			for (int v : odd){
+				if (!matched[v]) odd[left++] = v;
+			}
+			odd = Arrays.copyOf(odd, left);
+		}
+		return mate;
+	}
+
+	/**
+	 * Shortens the matching with 2-opt moves: two matching edges v-a and u-b are swapped for v-u and
+	 * a-b whenever that is lighter, for each odd vertex u near v, until no move helps
+	 * @param graph the graph
+	 * @param odd the odd-degree vertices
+	 * @param mate the partner of each odd vertex, updated in place
+	 */
+	private static void improve(Graph graph, int[] odd, int[] mate){
+		if (odd.length < 4) return;
+		PointGrid grid = new PointGrid(graph.getVertices(), odd.length);
+		for (int v : odd){
+			grid.add(v);
+		}
+		int k = Math.min(K, odd.length - 1);
+		int[][] near = new int[odd.length][k + 1];
+		double[] dist = new double[k + 1];
+		int[] found = new int[odd.length];
+		for (int a = 0; a < odd.length; a++){
+			found[a] = grid.nearest(odd[a], k + 1, near[a], dist);
+		}
+		boolean improved = true;
+		while (improved){
+			improved = false;
+			for (int a = 0; a < odd.length; a++){
+				int v = odd[a];
+				for (int j = 0; j < found[a]; j++){
+					int u = near[a][j];
+					if (u == v || u == mate[v]) continue;
+					int va = mate[v];
+					int ub = mate[u];
+					if (graph.getWeight(v, u) + graph.getWeight(va, ub) < graph.getWeight(v, va) + graph.getWeight(u, ub) - 1e-9){
+						mate[v] = u;
+						mate[u] = v;
+						mate[va] = ub;
+						mate[ub] = va;
+						improved = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds an Eulerian circuit of a connected multigraph whose degrees are all even, with
+	 * Hierholzer's algorithm on an explicit stack over compressed adjacency arrays
+	 * @param N the number of vertices
+	 * @param from the first endpoint of every edge
+	 * @param to the second endpoint
+	 * @param E the number of edges
+	 * @return the circuit, E+1 vertices starting and ending at vertex 0
+	 */
+	private static int[] circuit(int N, int[] from, int[] to, int E){
+		int[] start = new int[N + 1]; //where each vertex's edges begin in incident
+		for (int e = 0; e < E; e++){
+			start[from[e] + 1]++;
+			start[to[e] + 1]++;
+		}
+		for (int v = 0; v < N; v++){
+			start[v + 1] += start[v];
+		}
+		int[] incident = new int[2 * E]; //the edges of each vertex, grouped by vertex
+		int[] next = Arrays.copyOf(start, N); //the next free slot of each vertex while filling, then the next edge to try
+		for (int e = 0; e < E; e++){
+			incident[next[from[e]]++] = e;
+			incident[next[to[e]]++] = e;
+		}
+		System.arraycopy(start, 0, next, 0, N);
+		boolean[] used = new boolean[E];
+		int[] stack = new int[E + 1];
+		int[] circuit = new int[E + 1];
+		int top = 0;
+		int length = 0;
+		stack[top++] = 0;
+		while (top > 0){
+			int v = stack[top - 1];
+			while (next[v] < start[v + 1] && used[incident[next[v]]]) next[v]++;
+			if (next[v] == start[v + 1]){ //every edge of v is walked, so v is final in the circuit
+				circuit[length++] = v;
+				top--;
+				continue;
+			}
+			int e = incident[next[v]++];
+			used[e] = true;
+			stack[top++] = from[e] == v ? to[e] : from[e];
+		}
+		return circuit;
+	}
+
+	/**
+	 * Skips the vertices of a circuit that were already visited
+	 * @param circuit the circuit, starting and ending at vertex 0
+	 * @param N the number of vertices
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	private static int[] shortcut(int[] circuit, int N){
+		boolean[] visited = new boolean[N];
+		int[] path = new int[N + 1];
+		int i = 0;
+		for (int v : circuit){
+			if (visited[v]) continue;
+			visited[v] = true;
+			path[i++] = v;
+		}
+		return path;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java ChristofidesTSP n seed [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices must be greater than 0");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		int[] path = tour(graph);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using christofides: ", graph.tourLength(path), path);
+		out.printf("Runtime for christofides TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
@@ -0,0 +1,370 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Multi-process mode of PartitionTSP. A coordinator partitions the instance into cells and ships
+ * each cell to worker processes over TCP or a Unix domain socket, in a compact binary format of
+ * zig-zag varint coordinate deltas. Workers solve their cells and send back the visiting order,
+ * and the coordinator stitches the tree. Workers may be spawned locally by the coordinator or
+ * started by hand on other machines and pointed at its address. A cell whose worker fails, or holds
+ * it for longer than the timeout, is put back in the queue, and anything left when every worker is
+ * gone, or when none has been connected for the timeout, is solved by the coordinator. Every
+ * connection is closed and its handler joined before the coordinator stitches, so no handler
+ * writes a cell while it is being read.
+ */
+public class ClusterTSP {
+	private static final int SHUTDOWN = 0; //the opcode that tells a worker to exit
+	private static final int SOLVE = 1; //the opcode of a cell to solve
+
+	private int[][] pts; //the coordinates of every vertex
+	private String solver; //the sub-solver the workers use
+	private ConcurrentLinkedQueue<PartitionTSP.Cell> pending; //the cells not yet solved
+	private CountDownLatch remaining; //counts down once per solved cell
+	private volatile int connected; //the number of workers that ever connected
+	private long timeout; //how long a worker may hold a cell, and how long to wait with no worker connected
+	private Set<Lease> leases; //the connections being served
+	private ConcurrentLinkedQueue<Thread> handlers; //every handler thread, joined before stitching
+
+	/**
+	 * Private helper class holding one worker connection and the cell it is solving
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private static class Lease {
+		private SocketChannel channel; //the connection to the worker
+		private volatile PartitionTSP.Cell cell; //the cell sent to the worker, null between cells
+		private volatile long since; //when the cell was sent
+	}
+
+	/**
+	 * Constructor for the coordinator
+	 * @param pts the coordinates of every vertex
+	 * @param solver the sub-solver of the cells
+	 * @param timeout how long a worker may hold a cell, in milliseconds
+	 */
+	public ClusterTSP(int[][] pts, String solver, long timeout){
+		this.pts = pts;
+		this.solver = solver;
+		this.timeout = timeout;
+		this.leases = ConcurrentHashMap.newKeySet();
+		this.handlers = new ConcurrentLinkedQueue<Thread>();
+	}
+
+	/**
+	 * Parses an address of the form host:port or unix:/path
+	 * @param address the address
+	 * @return the socket address
+	 */
+	static SocketAddress parse(String address){
+		if (address.startsWith("unix:")) return UnixDomainSocketAddress.of(address.substring(5));
+		int colon = address.lastIndexOf(':');
+		return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+	}
+
+	/**
+	 * Writes an unsigned varint
+	 * @param out the stream
+	 * @param v the value, treated as unsigned
+	 */
+	static void writeVarint(DataOutputStream out, int v) throws IOException{
+		while ((v & ~0x7F) != 0){
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	/**
+	 * Reads an unsigned varint
+	 * @param in the stream
+	 * @return the value
+	 */
+	static int readVarint(DataInputStream in) throws IOException{
+		int v = 0;
+		for (int shift = 0; ; shift += 7){
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return v;
+		}
+	}
+
+	/**
+	 * Writes a signed value as a zig-zag varint
+	 * @param out the stream
+	 * @param v the value
+	 */
+	static void writeSigned(DataOutputStream out, int v) throws IOException{
+		writeVarint(out, (v << 1) ^ (v >> 31));
+	}
+
+	/**
+	 * Reads a zig-zag varint
+	 * @param in the stream
+	 * @return the signed value
+	 */
+	static int readSigned(DataInputStream in) throws IOException{
+		int v = readVarint(in);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * Solves the instance: partitions it, hands the cells to the workers and stitches the result
+	 * @param address the address to listen on
+	 * @param M the maximum cell size
+	 * @param spawn the number of local worker processes to start
+	 * @param pool the fork/join pool used for stitching
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	public int[] solve(SocketAddress address, int M, int spawn, ForkJoinPool pool) throws IOException, InterruptedException{
+		int N = pts.length;
+		int[] ids = new int[N];
+		for (int i = 0; i < N; i++) ids[i] = i;
+		PartitionTSP.Cell root = PartitionTSP.partition(pts, ids, M);
+		List<PartitionTSP.Cell> leaves = new ArrayList<PartitionTSP.Cell>();
+		PartitionTSP.leaves(root, leaves);
+		pending = new ConcurrentLinkedQueue<PartitionTSP.Cell>(leaves);
+		remaining = new CountDownLatch(leaves.size());
+		ServerSocketChannel server = address instanceof UnixDomainSocketAddress
+				? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+		if (address instanceof UnixDomainSocketAddress) Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+		server.bind(address);
+		List<Process> workers = new ArrayList<Process>();
+		String target = address instanceof UnixDomainSocketAddress
+				? "unix:" + ((UnixDomainSocketAddress) address).getPath()
+				: "localhost:" + ((InetSocketAddress) server.getLocalAddress()).getPort();
+		for (int w = 0; w < spawn; w++){
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ClusterTSP", "worker", target)
+					.inheritIO().start());
+		}
+		Thread acceptor = new Thread(() -> accept(server), "acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		long idle = System.currentTimeMillis(); //when a worker was last seen connected
+		while (!remaining.await(1, TimeUnit.SECONDS)){
+			if (spawn > 0 && allDead(workers)) break; //whatever is left is solved below
+			long now = System.currentTimeMillis();
+			for (Lease lease : leases){
+				if (lease.cell != null && now - lease.since > timeout) close(lease.channel); //its handler puts the cell back
+			}
+			if (!leases.isEmpty()){
+				idle = now;
+			} else if (now - idle > timeout){
+				break; //no worker is left to take the pending cells
+			}
+		}
+		server.close();
+		acceptor.join(); //no handler starts after this
+		for (Lease lease : leases){
+			close(lease.channel);
+		}
+		for (Thread handler : handlers){
+			handler.join();
+		}
+		for (Process worker : workers){
+			worker.waitFor(5, TimeUnit.SECONDS);
+		}
+		return PartitionTSP.stitch(pts, root, solver, pool); //also solves any cell no worker finished
+	}
+
+	/**
+	 * Determines if every spawned worker has exited
+	 * @param workers the worker processes
+	 * @return true if none is alive
+	 */
+	private static boolean allDead(List<Process> workers){
+		for (Process worker : workers){
+			if (worker.isAlive()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Closes a connection, which makes its handler's blocked read or write fail
+	 * @param channel the connection
+	 */
+	private static void close(SocketChannel channel){
+		try {
+			channel.close();
+		} catch (IOException e){
+			//already closed
+		}
+	}
+
+	/**
+	 * Accepts worker connections until the server is closed, serving each on its own thread
+	 * @param server the server channel
+	 */
+	private void accept(ServerSocketChannel server){
+		try {
+			while (true){
+				SocketChannel channel = server.accept();
+				connected++;
+				Thread handler = new Thread(() -> serve(channel), "worker-" + connected);
+				handler.setDaemon(true);
+				handlers.add(handler);
+				handler.start();
+			}
+		} catch (IOException e){
+			//the server was closed once every cell was solved
+		}
+	}
+
+	/**
+	 * Feeds cells to one worker until none are pending, then tells it to exit
+	 * @param channel the connection to the worker
+	 */
+	private void serve(SocketChannel channel){
+		PartitionTSP.Cell cell = null;
+		Lease lease = new Lease();
+		lease.channel = channel;
+		leases.add(lease);
+		try (SocketChannel c = channel){
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+			while ((cell = pending.poll()) != null){
+				lease.since = System.currentTimeMillis();
+				lease.cell = cell;
+				out.writeByte(SOLVE);
+				out.writeUTF(solver);
+				writeVarint(out, cell.ids.length);
+				int x = 0, y = 0;
+				for (int v : cell.ids){ //coordinates as deltas from the previous point
+					writeSigned(out, pts[v][0] - x);
+					writeSigned(out, pts[v][1] - y);
+					x = pts[v][0];
+					y = pts[v][1];
+				}
+				out.flush();
+				int n = readVarint(in);
+				int[] tour = new int[n];
+				for (int i = 0; i < n; i++){
+					tour[i] = cell.ids[readVarint(in)];
+				}
+				cell.tour = tour;
+				cell = null;
+				lease.cell = null;
+				remaining.countDown();
+			}
+			out.writeByte(SHUTDOWN);
+			out.flush();
+		} catch (IOException e){
+			if (cell != null) pending.offer(cell); //another worker or the coordinator will solve it
+		} finally {
+			leases.remove(lease);
+		}
+	}
+
+	/**
+	 * The worker loop: solves cells until told to shut down or the coordinator goes away
+	 * @param address the coordinator's address
+	 */
+	static void work(SocketAddress address) throws IOException{
+		SocketChannel channel = address instanceof UnixDomainSocketAddress
+				? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+		channel.connect(address);
+		try (SocketChannel c = channel){
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+			while (in.readUnsignedByte() == SOLVE){
+				String solver = in.readUTF();
+				int n = readVarint(in);
+				int[][] local = new int[n][2];
+				int[] ids = new int[n];
+				int x = 0, y = 0;
+				for (int i = 0; i < n; i++){
+					x += readSigned(in);
+					y += readSigned(in);
+					local[i][0] = x;
+					local[i][1] = y;
+					ids[i] = i;
+				}
+				int[] tour = PartitionTSP.solveCell(local, ids, solver);
+				writeVarint(out, n);
+				for (int v : tour){
+					writeVarint(out, v);
+				}
+				out.flush();
+			}
+		} catch (EOFException e){
+			//the coordinator finished without saying goodbye
+		}
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		if (args.length >= 2 && args[0].equals("worker")){
+			work(parse(args[1]));
+			return;
+		}
+		if (args.length < 3 || !args[0].equals("coordinator")){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java ClusterTSP coordinator n seed [-l host:port | -l unix:/path] [-p workers] [-m cell] [-s solver] [-timeout millis] [-q] [-o file.tour | -b file.bin]");
+			System.out.println("       java ClusterTSP worker host:port | unix:/path");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int M = 2000;
+		int spawn = Runtime.getRuntime().availableProcessors();
+		String listen = "localhost:0";
+		String solver = "local";
+		long timeout = 120000;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[1]);
+			seed = Long.parseLong(args[2]);
+			for (int i = 3; i + 1 < args.length; i++){
+				if (args[i].equals("-m")) M = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-p")) spawn = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-l")) listen = args[i + 1];
+				if (args[i].equals("-s")) solver = args[i + 1];
+				if (args[i].equals("-timeout")) timeout = Long.parseLong(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 || M < 1 || spawn < 0 || timeout < 1){
+			System.out.println("Number of vertices, cell size and timeout must be greater than 0");
+			System.exit(0);
+		}
+		if (!Solvers.isKnown(solver)){
+			System.out.println("Sub-solver must be one of " + Solvers.NAMES);
+			System.exit(0);
+		}
+		String[] rest = new String[args.length - 1]; //the writer flags follow "n seed" like every other solver
+		System.arraycopy(args, 1, rest, 0, rest.length);
+		TourWriter out = TourWriter.fromArgs(rest);
+		int[][] pts = Graph.coordinates(N, seed);
+		long start = System.currentTimeMillis();
+		ClusterTSP coordinator = new ClusterTSP(pts, solver, timeout);
+		int[] path = coordinator.solve(parse(listen), M, spawn, ForkJoinPool.commonPool());
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using cluster: ", PartitionTSP.length(pts, path), path);
+		out.printf("Workers: %d connected\n", coordinator.connected);
+		out.printf("Runtime for cluster TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+		if (listen.startsWith("unix:")) Files.deleteIfExists(Paths.get(listen.substring(5)));
+	}
+}
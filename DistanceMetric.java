@@ -0,0 +1,131 @@
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The distance functions a Graph can be built with. Each constant overrides distance with its own
+ * body, and a run only ever uses one of them, so the call in Graph stays monomorphic and the JIT
+ * can inline the arithmetic straight into the solvers' loops.
+ */
+public enum DistanceMetric {
+	/**
+	 * The straight line distance
+	 */
+	EUCLIDEAN {
+		@Override
+		public double distance(int[] a, int[] b){
+			double dx = a[0] - b[0];
+			double dy = a[1] - b[1];
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+	},
+	/**
+	 * The squared straight line distance. It orders pairs like EUCLIDEAN without the square root,
+	 * so it suits nearest neighbor comparisons, but the sum over a tour is not a tour length.
+	 */
+	SQUARED {
+		@Override
+		public double distance(int[] a, int[] b){
+			double dx = a[0] - b[0];
+			double dy = a[1] - b[1];
+			return dx * dx + dy * dy;
+		}
+	},
+	/**
+	 * The city block distance, an integer
+	 */
+	MANHATTAN {
+		@Override
+		public double distance(int[] a, int[] b){
+			return Math.abs((long) a[0] - b[0]) + Math.abs((long) a[1] - b[1]);
+		}
+
+		@Override
+		public int intDistance(int[] a, int[] b){
+			return Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1]);
+		}
+
+		@Override
+		public boolean isIntegral(){
+			return true;
+		}
+	},
+	/**
+	 * The great circle distance in metres. The x coordinate is the longitude and the y coordinate
+	 * the latitude, both in millionths of a degree.
+	 */
+	HAVERSINE {
+		@Override
+		public double distance(int[] a, int[] b){
+			double lat1 = Math.toRadians(a[1] * 1e-6);
+			double lat2 = Math.toRadians(b[1] * 1e-6);
+			double sinLat = Math.sin((lat2 - lat1) / 2);
+			double sinLon = Math.sin(Math.toRadians((b[0] - a[0]) * 1e-6) / 2);
+			double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+			return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+		}
+	},
+	/**
+	 * The straight line distance rounded to the nearest integer, TSPLIB's EUC_2D
+	 */
+	NINT {
+		@Override
+		public double distance(int[] a, int[] b){
+			double dx = a[0] - b[0];
+			double dy = a[1] - b[1];
+			return (long) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+		}
+
+		@Override
+		public int intDistance(int[] a, int[] b){
+			double dx = a[0] - b[0];
+			double dy = a[1] - b[1];
+			return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+		}
+
+		@Override
+		public boolean isIntegral(){
+			return true;
+		}
+	};
+
+	private static final double EARTH_RADIUS = 6371000.0; //the mean radius of the earth in metres
+
+	/**
+	 * Computes the distance between two points
+	 * @param a the first [x,y] pair
+	 * @param b the second [x,y] pair
+	 * @return the distance
+	 */
+	public abstract double distance(int[] a, int[] b);
+
+	/**
+	 * Computes the distance between two points as an int, for the integer metrics only. Solvers can
+	 * then add and compare weights in int arithmetic; the coordinates must be within 2^29 of each
+	 * other so the result fits.
+	 * @param a the first [x,y] pair
+	 * @param b the second [x,y] pair
+	 * @return the distance
+	 */
+	public int intDistance(int[] a, int[] b){
+		throw new UnsupportedOperationException(this + " distances are not whole numbers");
+	}
+
+	/**
+	 * Determines if every distance is a whole number, so sums of them can be kept exactly in a long
+	 * @return true for the integer metrics
+	 */
+	public boolean isIntegral(){
+		return false;
+	}
+
+	/**
+	 * Looks a metric up by name, ignoring case
+	 * @param name the name, e.g. euclidean or nint
+	 * @return the metric
+	 */
+	public static DistanceMetric parse(String name){
+		try {
+			return valueOf(name.toUpperCase());
+		} catch (IllegalArgumentException e){
+			throw new IllegalArgumentException("Unknown metric " + name + ", expected euclidean, squared, manhattan, haversine or nint");
+		}
+	}
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A tour kept up to date while its vertices change. Adding, removing or moving a vertex updates
+ * one row of the graph and the candidate lists it affects, puts the vertex back by cheapest
+ * insertion next to its candidates, and runs 2-opt seeded only with the vertices around the change.
+ * Each update costs O(N k) instead of the O(N^2) of rebuilding the graph and solving again.
+ */
+public class DynamicTour {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+
+	private Graph graph; //the graph, mutated by this class
+	private int k; //the number of candidates per vertex
+	private int[][] neighbors; //the candidate lists, with spare rows for added vertices
+	private int[] path; //the current tour, N+1 entries starting and ending at vertex 0
+	private double length; //the length of the current tour
+	private int[] seeds; //the vertices the local search starts from after an update
+
+	/**
+	 * Constructor for a dynamic tour
+	 * @param graph the graph, which the updates will change
+	 * @param path the starting tour, N+1 entries starting and ending at vertex 0
+	 * @param k the number of candidates per vertex
+	 */
+	public DynamicTour(Graph graph, int[] path, int k){
+		this.graph = graph;
+		this.k = k;
+		this.neighbors = CandidateLists.nearest(graph, k);
+		this.path = path.clone();
+		this.length = graph.tourLength(this.path);
+		this.seeds = new int[4];
+	}
+
+	/**
+	 * Adds a vertex and inserts it into the tour
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the number of the new vertex
+	 */
+	public int addVertex(int x, int y){
+		int v = graph.addVertex(x, y);
+		if (v == neighbors.length) neighbors = Arrays.copyOf(neighbors, v + (v >> 1) + 1);
+		CandidateLists.update(graph, neighbors, v, k);
+		insert(order(-1), v);
+		return v;
+	}
+
+	/**
+	 * Removes a vertex and closes the gap it leaves in the tour. Vertex 0 is where every tour
+	 * starts, so it cannot be removed.
+	 * @param v the vertex
+	 * @return the former number of the vertex that is now numbered v, as in Graph.removeVertex
+	 */
+	public int removeVertex(int v){
+		if (v == 0) throw new IllegalArgumentException("Vertex 0 is the start of every tour and cannot be removed");
+		int[] order = order(v);
+		int n = order.length;
+		int p = 0;
+		while (path[p] != v) p++; //the neighbors of v in the tour are joined and repaired below
+		int before = path[p - 1];
+		int after = path[p + 1];
+		int moved = graph.removeVertex(v);
+		CandidateLists.remove(graph, neighbors, v, moved, k);
+		for (int i = 0; i < n; i++){
+			if (order[i] == moved) order[i] = v;
+		}
+		seeds[0] = before == moved ? v : before;
+		seeds[1] = after == moved ? v : after;
+		repair(order, 2);
+		return moved;
+	}
+
+	/**
+	 * Moves a vertex to new coordinates and reinserts it where it is now cheapest
+	 * @param v the vertex
+	 * @param x the new x coordinate
+	 * @param y the new y coordinate
+	 */
+	public void moveVertex(int v, int x, int y){
+		graph.moveVertex(v, x, y);
+		CandidateLists.update(graph, neighbors, v, k);
+		insert(order(v), v);
+	}
+
+	/**
+	 * Copies the tour into a cyclic order, leaving one vertex out
+	 * @param skip the vertex to leave out, or -1 to keep every vertex
+	 * @return the cyclic order
+	 */
+	private int[] order(int skip){
+		int n = path.length - 1;
+		int[] order = new int[skip < 0 ? n : n - 1];
+		int count = 0;
+		for (int i = 0; i < n; i++){
+			if (path[i] != skip) order[count++] = path[i];
+		}
+		return order;
+	}
+
+	/**
+	 * Inserts a vertex into a cyclic order between the pair of consecutive vertices where it adds the
+	 * least length. Only the tour edges at the vertex's candidates are tried, or every edge if none
+	 * of them is in the order.
+	 * @param order the cyclic order without v
+	 * @param v the vertex to insert
+	 */
+	private void insert(int[] order, int v){
+		int n = order.length;
+		int[] pos = new int[n + 1];
+		Arrays.fill(pos, -1);
+		for (int i = 0; i < n; i++){
+			pos[order[i]] = i;
+		}
+		int bestAt = -1; //v goes after position bestAt
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int c : neighbors[v]){
+			if (pos[c] < 0) continue;
+			for (int at = pos[c] - 1; at <= pos[c]; at++){ //the edges before and after c
+				int i = (at + n) % n;
+				double cost = insertCost(order[i], order[(i + 1) % n], v);
+				if (cost < bestCost){
+					bestCost = cost;
+					bestAt = i;
+				}
+			}
+		}
+		if (bestAt < 0){
+			for (int i = 0; i < n; i++){
+				double cost = insertCost(order[i], order[(i + 1) % n], v);
+				if (cost < bestCost){
+					bestCost = cost;
+					bestAt = i;
+				}
+			}
+		}
+		int[] grown = new int[n + 1];
+		System.arraycopy(order, 0, grown, 0, bestAt + 1);
+		grown[bestAt + 1] = v;
+		System.arraycopy(order, bestAt + 1, grown, bestAt + 2, n - bestAt - 1);
+		seeds[0] = v;
+		seeds[1] = n == 0 ? v : order[bestAt];
+		seeds[2] = n == 0 ? v : order[(bestAt + 1) % n];
+		repair(grown, 3);
+	}
+
+	/**
+	 * The added length of putting v between two consecutive vertices
+	 * @param a the first vertex
+	 * @param b the vertex after a
+	 * @param v the vertex to insert
+	 * @return the increase in tour length
+	 */
+	private double insertCost(int a, int b, int v){
+		return graph.getWeight(a, v) + graph.getWeight(v, b) - graph.getWeight(a, b);
+	}
+
+	/**
+	 * Makes a cyclic order the current tour and runs 2-opt from the seed vertices
+	 * @param order the cyclic order of every vertex
+	 * @param count the number of seeds
+	 */
+	private void repair(int[] order, int count){
+		int N = graph.getN();
+		path = new int[N + 1];
+		Tour.fromOrder(order, path);
+		length = new TwoOpt(graph, neighbors).improve(path, seeds, count); //its buffers are O(N), cheap next to the row update
+	}
+
+	/**
+	 * Gets the current tour
+	 * @return a copy of the path, N+1 entries starting and ending at vertex 0
+	 */
+	public int[] getPath(){
+		return path.clone();
+	}
+
+	/**
+	 * Gets the length of the current tour
+	 * @return the length
+	 */
+	public double getLength(){
+		return length;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java DynamicTour n seed [-u updates] [-k candidates] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int updates = 1000;
+		int k = 10;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-u")) updates = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-k")) k = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 2 || updates < 0 || k < 1){
+			System.out.println("Need at least 2 vertices and 1 candidate");
+			System.exit(0);
+		}
+		for (String arg : args){
+			if (arg.equals("-road")){ //a road graph only has the network's nodes, so vertices cannot be added or moved
+				System.out.println("DynamicTour adds and moves vertices anywhere, so it cannot run on a road network");
+				System.exit(0);
+			}
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		int[] start = GreedyTSP.tour(graph);
+		new TwoOpt(graph, CandidateLists.nearest(graph, k)).improve(start);
+		DynamicTour tour = new DynamicTour(graph, start, k);
+		SplittableRandom random = new SplittableRandom(seed);
+		long total = 0;
+		long worst = 0;
+		for (int u = 0; u < updates; u++){ //an even mix of additions, removals and moves
+			int n = graph.getN();
+			long before = System.nanoTime();
+			int kind = random.nextInt(3);
+			if (kind == 0 || n < 3){
+				tour.addVertex(random.nextInt(N), random.nextInt(N));
+			} else if (kind == 1){
+				tour.removeVertex(1 + random.nextInt(n - 1));
+			} else {
+				tour.moveVertex(random.nextInt(n), random.nextInt(N), random.nextInt(N));
+			}
+			long elapsed = System.nanoTime() - before;
+			total += elapsed;
+			worst = Math.max(worst, elapsed);
+		}
+		out.writeTour("Distance using dynamic updates: ", tour.getLength(), tour.getPath());
+		out.printf("Updates: %d, mean %s ms, worst %s ms\n", updates,
+				df.format(total / 1e6 / Math.max(1, updates)), df.format(worst / 1e6));
+		long begin = System.currentTimeMillis(); //the same instance solved from scratch, for comparison
+		Graph rebuilt = new Graph(graph.getVertices(), graph.getMetric(), false);
+		int[] path = GreedyTSP.tour(rebuilt);
+		double length = new TwoOpt(rebuilt, CandidateLists.nearest(rebuilt, k)).improve(path);
+		long end = System.currentTimeMillis();
+		out.printf("Distance re-solved from scratch: %s\n", df.format(length));
+		out.printf("Runtime for a full re-solve   : %d milliseconds\n\n", end - begin);
+		out.close();
+	}
+}
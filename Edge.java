@@ -6,9 +6,9 @@ import java.text.DecimalFormat;
  */
 public class Edge implements Comparable<Edge>{
 
-	private Integer row; // the first vertex
-	private Integer col; // the second vertex
-	private Double weight; //the distance between both points
+	private int row; // the first vertex
+	private int col; // the second vertex
+	private double weight; //the distance between both points
 	
 	/**
 	 * Builder function for an Edge type representing an edge in a graph
@@ -24,11 +24,11 @@ public class Edge implements Comparable<Edge>{
 	
 	@Override
 	public int compareTo(Edge o) { //already documented
-		int result = weight.compareTo(o.weight);
+		int result = Double.compare(weight, o.weight); //primitive compares, no unboxing in the sort loops
 		if (result == 0){
-			result = row.compareTo(o.row);
+			result = Integer.compare(row, o.row);
 			if (result == 0){
-				result = col.compareTo(o.col);
+				result = Integer.compare(col, o.col);
 			}
 		}
 		return result;
@@ -1,5 +1,7 @@
 
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Stack;
 import java.text.DecimalFormat;
@@ -8,7 +10,8 @@ import java.lang.Math;
 /**
  * @author Dyangelo Grullon (dag4202)
  * The class to be used in future implementations of the Traveling Salesman Problem to represent a completely
- * connected euclidean graph.
+ * connected euclidean graph. Other distances can be chosen with a DistanceMetric, or taken from the
+ * shortest paths of a RoadNetwork.
  */
 public class Graph {
 	private double[][] graph; //the weighted matrix where the index values represent vertex number and the stored
@@ -17,6 +20,10 @@ public class Graph {
 	private int E; //The number of edges
 	private int[][] vertices; // Represented as an array of arrays holding x,y pairs in order of vertex number
 	private Edge[] edges; //Encapsulates the edges in an array of edges
+	private boolean stale; //true if vertices changed since the edges were built
+	private DistanceMetric metric; //the distance function between two vertices
+	private RoadNetwork road; //the roads whose shortest paths are the weights, null for a metric graph
+	private int[] stops; //the network node of each vertex when on roads
 	/**
 	 * Builder function for a matrix representing a completely connected euclidean graph. 
 	 * @param N the number of vertices
@@ -24,11 +31,200 @@ public class Graph {
 	 * @return a completely connected euclidean graph 
 	 */
 	public  Graph(int N, long seed){
-		this.graph = new double[N][N];
+		this(coordinates(N, seed));
+	}
+	
+	/**
+	 * Builder function for a completely connected euclidean graph over given coordinates
+	 * @param vertices an array holding arrays of [x,y] pairs in order of vertex number
+	 */
+	public Graph(int[][] vertices){
+		this(vertices, DistanceMetric.EUCLIDEAN, false);
+	}
+
+	/**
+	 * Builder function for a completely connected graph over given coordinates and metric. An implicit
+	 * graph stores no matrix and computes every weight from the coordinates when it is asked for,
+	 * which takes O(N) memory instead of O(N^2); its edge array is only built if a solver asks for it.
+	 * @param vertices an array holding arrays of [x,y] pairs in order of vertex number
+	 * @param metric the distance function
+	 * @param implicit true to compute weights on demand instead of storing the matrix
+	 */
+	public Graph(int[][] vertices, DistanceMetric metric, boolean implicit){
+		int N = vertices.length;
 		this.N = N;
 		this.E = (N * (N-1))/2;
-		this.vertices = new int[N][2]; //second array is for coordinates
+		this.vertices = vertices;
+		this.metric = metric;
+		if (implicit){
+			this.stale = true;
+			return;
+		}
+		this.graph = new double[N][N];
 		this.edges = new Edge[E];
+		double distance;
+		int count = 0;
+		for (int vertex1 = 0; vertex1 < N; vertex1++){
+			for(int vertex2=vertex1 + 1; vertex2 < N; vertex2++){
+				distance = distance(vertex1, vertex2);
+				this.graph[vertex1][vertex2] = distance; 
+				this.graph[vertex2][vertex1] = distance;
+				this.edges[count] = new Edge(vertex1, vertex2, distance); //New for part 2, appends an edge to edge array
+				count++;
+			}
+		}
+		
+		
+		
+	}
+
+	/**
+	 * Builder function for a graph over the nodes of a road network, where the weight of two
+	 * vertices is the length of the shortest path between their nodes. Like an implicit graph it
+	 * stores no matrix; every weight is searched for, or taken from the network's cache, when it is
+	 * asked for. The vertices take their nodes' coordinates, so solvers that look up nearby vertices
+	 * by location still work, with the straight line as an estimate of the travel cost.
+	 * @param road the road network
+	 * @param stops the distinct network node of each vertex
+	 */
+	public Graph(RoadNetwork road, int[] stops){
+		int N = stops.length;
+		this.N = N;
+		this.E = (N * (N-1))/2;
+		this.road = road;
+		this.stops = stops;
+		this.vertices = new int[N][];
+		for (int v = 0; v < N; v++){
+			vertices[v] = road.getCoordinates(stops[v]);
+		}
+		this.stale = true;
+	}
+
+	/**
+	 * Builds the graph named by the command line flags -metric name and -implicit, which any
+	 * solver accepts after n and seed. With -road [file] the vertices are instead n random nodes
+	 * of a road network, read from the file or generated from the seed; DynamicTour rejects it, as
+	 * a road graph cannot add or move vertices.
+	 * @param N the number of vertices
+	 * @param seed the seed used to randomly generate the x and y coordinates
+	 * @param args the command line arguments
+	 * @return the graph
+	 * @throws IOException if the road network file cannot be read
+	 */
+	public static Graph fromArgs(int N, long seed, String[] args) throws IOException{
+		RoadNetwork road = RoadNetwork.fromArgs(N, seed, args);
+		if (road != null) return new Graph(road, road.stopsFromArgs(N, seed));
+		DistanceMetric metric = DistanceMetric.EUCLIDEAN;
+		boolean implicit = false;
+		for (int i = 2; i < args.length; i++){
+			if (args[i].equals("-metric") && i + 1 < args.length) metric = DistanceMetric.parse(args[i + 1]);
+			if (args[i].equals("-implicit")) implicit = true;
+		}
+		return new Graph(coordinates(N, seed), metric, implicit);
+	}
+
+	/**
+	 * Computes the distance between two vertices from their coordinates
+	 * @param vertex1 a vertex number
+	 * @param vertex2 a second vertex number
+	 * @return the distance
+	 */
+	private double distance(int vertex1, int vertex2){
+		return metric.distance(vertices[vertex1], vertices[vertex2]);
+	}
+
+	/**
+	 * Adds a vertex, computing only its own row and column of the matrix. The matrix grows by half
+	 * when it is full, so the copy is amortised over many additions. The edge array is rebuilt
+	 * the next time it is asked for.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the number of the new vertex, N-1 after the call
+	 */
+	public int addVertex(int x, int y){
+		if (road != null) throw new UnsupportedOperationException("A road graph only has the network's nodes");
+		if (graph != null && N == graph.length){
+			int capacity = N + (N >> 1) + 1;
+			double[][] grown = new double[capacity][];
+			for (int v = 0; v < capacity; v++){
+				grown[v] = v < N ? Arrays.copyOf(graph[v], capacity) : new double[capacity];
+			}
+			graph = grown;
+		}
+		vertices = Arrays.copyOf(vertices, N + 1);
+		vertices[N] = new int[]{x, y};
+		int v = N++;
+		E = (N * (N-1))/2;
+		updateRow(v);
+		return v;
+	}
+
+	/**
+	 * Removes a vertex. The last vertex takes over its number, so only one row and column move.
+	 * @param v the vertex to remove
+	 * @return the former number of the vertex that is now numbered v, which is v itself if it was the last
+	 */
+	public int removeVertex(int v){
+		if (v < 0 || v >= N) throw new IndexOutOfBoundsException("No vertex " + v);
+		int last = N - 1;
+		if (v != last){
+			vertices[v] = vertices[last];
+		}
+		if (v != last && road != null){
+			stops[v] = stops[last];
+		}
+		if (v != last && graph != null){
+			double[] row = graph[v]; //swaps the rows, then copies the column
+			graph[v] = graph[last];
+			graph[last] = row;
+			for (int u = 0; u < last; u++){
+				graph[u][v] = graph[u][last];
+			}
+			graph[v][v] = 0.0;
+		}
+		vertices = Arrays.copyOf(vertices, last);
+		if (road != null) stops = Arrays.copyOf(stops, last);
+		N = last;
+		E = (N * (N-1))/2;
+		stale = true;
+		return last;
+	}
+
+	/**
+	 * Moves a vertex to new coordinates, recomputing only its row and column of the matrix
+	 * @param v the vertex
+	 * @param x the new x coordinate
+	 * @param y the new y coordinate
+	 */
+	public void moveVertex(int v, int x, int y){
+		if (v < 0 || v >= N) throw new IndexOutOfBoundsException("No vertex " + v);
+		if (road != null) throw new UnsupportedOperationException("A road graph only has the network's nodes");
+		vertices[v] = new int[]{x, y}; //the caller's coordinate array is left alone
+		updateRow(v);
+	}
+
+	/**
+	 * Recomputes the row and column of one vertex and marks the edges out of date
+	 * @param v the vertex
+	 */
+	private void updateRow(int v){
+		for (int u = 0; graph != null && u < N; u++){ //an implicit graph has nothing to update
+			double distance = u == v ? 0.0 : distance(u, v);
+			graph[v][u] = distance;
+			graph[u][v] = distance;
+		}
+		stale = true;
+	}
+
+	/**
+	 * Generates the random coordinates of a graph without building its matrix. 
+	 * The x coordinates are distinct values between 0 and N-1.
+	 * @param N the number of vertices
+	 * @param seed the seed used to randomly generate the x and y coordinates
+	 * @return an array holding arrays of [x,y] pairs in order of vertex number
+	 */
+	public static int[][] coordinates(int N, long seed){
+		int[][] vertices = new int[N][2]; //second array is for coordinates
 		Random generatorX = new Random(seed);
 		Random generatorY = new Random(seed * 2);
 		int count = 0; //Vertex Count
@@ -44,24 +240,9 @@ public class Graph {
 				visited[x] = true;
 			}
 		}
-		
-		double distance;
-		count = 0;
-		for (int vertex1 = 0; vertex1 < N; vertex1++){
-			for(int vertex2=vertex1 + 1; vertex2 < N; vertex2++){
-				distance = Math.sqrt(Math.pow(vertices[vertex1][0]-vertices[vertex2][0],2) +
-						Math.pow((vertices[vertex1][1]-vertices[vertex2][1]), 2)); //Computes Euclidean distance
-				this.graph[vertex1][vertex2] = distance; 
-				this.graph[vertex2][vertex1] = distance;
-				this.edges[count] = new Edge(vertex1, vertex2, distance); //New for part 2, appends an edge to edge array
-				count++;
-			}
-		}
-		
-		
-		
+		return vertices;
 	}
-
+	
 	/**
 	 * Publicly accessible method which updates the graph data structure with 
 	 * specific edges, based on an array of edges. Resets the graph before
@@ -71,6 +252,7 @@ public class Graph {
 	public void updateGraph(Edge[] edges){
 		this.graph = new double[N][N];
 		this.edges = edges;
+		this.stale = false;
 		for (Edge edge : edges){
 			graph[edge.getRow()][edge.getCol()] = edge.getWeight();
 			graph[edge.getCol()][edge.getRow()] = edge.getWeight();
@@ -101,10 +283,21 @@ public class Graph {
 	
 	/**
 	 * Publicly accessible method which retrieves all edges in the graph and 
-	 * returns them in an array of Edge types
+	 * returns them in an array of Edge types. After vertices were added, removed or moved the
+	 * array is rebuilt from the matrix on the first call.
 	 * @return an array of edges
 	 */
-	public Edge[] getEdges(){
+	public synchronized Edge[] getEdges(){
+		if (stale){
+			edges = new Edge[E];
+			int count = 0;
+			for (int vertex1 = 0; vertex1 < N; vertex1++){
+				for (int vertex2 = vertex1 + 1; vertex2 < N; vertex2++){
+					edges[count++] = new Edge(vertex1, vertex2, getWeight(vertex1, vertex2));
+				}
+			}
+			stale = false;
+		}
 		return edges;
 	}
 	
@@ -136,8 +329,51 @@ public class Graph {
 	 * @return the distance between both points
 	 */
 	public double getWeight(int v1, int v2){
+		if (graph == null && road != null) return road.distance(stops[v1], stops[v2]); //road mode
+		if (graph == null) return metric.distance(vertices[v1], vertices[v2]); //implicit mode
 		return graph[v1][v2];
 	}
+
+	/**
+	 * Publicly accessible method which retrieves the distance between two vertices as an int, for
+	 * graphs whose metric is integral
+	 * @param v1 a vertex number
+	 * @param v2 a second vertex number
+	 * @return the distance between both points
+	 */
+	public int getIntWeight(int v1, int v2){
+		if (graph == null) return metric.intDistance(vertices[v1], vertices[v2]); //implicit mode
+		return (int) graph[v1][v2]; //a whole number, stored exactly
+	}
+
+	/**
+	 * Determines if every weight is a whole number, so getIntWeight may be used
+	 * @return true for a graph over an integral metric
+	 */
+	public boolean isIntegral(){
+		return road == null && metric != null && metric.isIntegral();
+	}
+
+	/**
+	 * Publicly accessible method which computes the length of a closed path
+	 * @param path the path, N+1 entries starting and ending at the same vertex
+	 * @return the sum of the weights along the path
+	 */
+	public double tourLength(int[] path){
+		if (isIntegral()){ //whole numbers add up exactly in a long
+			long sum = 0;
+			for (int i = 0; i + 1 < path.length; i++){
+				sum += (long) getWeight(path[i], path[i + 1]);
+			}
+			return sum;
+		}
+		double length = 0.0;
+		for (int i = 0; i + 1 < path.length; i++){
+			length += getWeight(path[i], path[i + 1]);
+		}
+		return length;
+	}
+	
 	/**
 	 * Publicly accessible method which returns the number of vertices
 	 * @return N the number of vertices
@@ -145,6 +381,14 @@ public class Graph {
 	public int getN(){
 		return this.N;
 	}
+
+	/**
+	 * Publicly accessible method which returns the distance function of the graph
+	 * @return the metric, or null for a graph built from edges or roads
+	 */
+	public DistanceMetric getMetric(){
+		return metric;
+	}
 	
 	/**
 	 * Publicly accessible method which prints a formatted representation of the matrix
@@ -159,7 +403,7 @@ public class Graph {
 		for(int x=0; x < N; x++){
 			System.out.printf("%d  ",x);
 			for (int xtwo = 0; xtwo < N; xtwo++){
-				System.out.printf(" %s  ",df.format(graph[x][xtwo]));
+				System.out.printf(" %s  ",df.format(getWeight(x, xtwo)));
 			}
 			System.out.println("\n");
 		}
@@ -185,7 +429,7 @@ public class Graph {
 				path[count++] = v;
 				discovered[v] = true;
 				for (int i = N -1; i >= 0; i--){
-					if( graph[v][i] == 0.0 ){
+					if( getWeight(v, i) == 0.0 ){
 						continue;
 					}
 					stack.push(i);
@@ -1,4 +1,5 @@
-import java.text.DecimalFormat;
+import java.io.IOException;
+import java.util.Arrays;
 
 
 /**
@@ -7,8 +8,6 @@ import java.text.DecimalFormat;
  */
 public class GreedyTSP {
 
-	private static DecimalFormat df = new DecimalFormat("0.00");
-	
 	/**
 	 * A private, helper class that implements quick sort to sort an array of edges
 	 * @author Dyangelo Grullon (dag4202)
@@ -170,9 +169,101 @@ public class GreedyTSP {
 		}
 		
 	}
-	public static void main(String args[]){
+	/**
+	 * Picks the N edges of the greedy tour from an array of edges sorted by weight
+	 * @param edges the sorted edges
+	 * @param detection a fresh cycle and repetition detection over the N vertices
+	 * @param N the number of vertices
+	 * @return the edges of the tour in the order they were chosen
+	 */
+	private static Edge[] select(Edge[] edges, UnionFind detection, int N){
+		Edge[] MST = new Edge[N]; //instantiates an array of edges representing a minimum spanning tree
+		int pos = 0; //the current position in the edges array
+		int includedCount = 0; //the number of edges included in the MST
+		while (includedCount < N){
+			Edge edge = edges[pos]; //retrieves the current edge to be chosen
+			int row = edge.getRow(); //gets the first vertex of the edge
+			int col = edge.getCol(); //gets the second vertex of the edge
+			int root1 = detection.find(row); //finds the parent/root of the row
+			int root2 = detection.find(col); //finds the parent/root of the col
+			if (root1 != root2 && !detection.isThird(row, col)){ //if the parent/root of both vertices are not the same
+																	//AND the edge is not the third edge from either vertex
+				MST[includedCount] = edges[pos]; //store the edge in the MST
+				includedCount++; 
+				detection.union(root1, root2); //unify the subtrees
+				detection.incrCount(row, col); //increment the count value of the vertex for the isThird Method
+			} else if(includedCount == N-1 && !detection.isThird(row, col)){ //Do the same without cycle detection for the last element in the MST
+				MST[includedCount] = edges[pos];
+				includedCount++;
+				detection.union(root1, root2);
+				detection.incrCount(row, col);
+			}
+			pos++; //increment the position in the edges array
+		}
+		return MST;
+	}
+	
+	/**
+	 * Sorts the edges of a graph with whole number weights by packing each int weight above the
+	 * edge's index in a long, so the sort compares primitive longs instead of Edge objects
+	 * @param graph the graph, whose metric is integral
+	 * @return a sorted copy of its edges
+	 */
+	private static Edge[] sortIntegral(Graph graph){
+		Edge[] all = graph.getEdges();
+		long[] keys = new long[all.length];
+		for (int i = 0; i < all.length; i++){
+			keys[i] = ((long) graph.getIntWeight(all[i].getRow(), all[i].getCol()) << 32) | i;
+		}
+		Arrays.sort(keys);
+		Edge[] edges = new Edge[all.length];
+		for (int i = 0; i < all.length; i++){
+			edges[i] = all[(int) keys[i]];
+		}
+		return edges;
+	}
+
+	/**
+	 * Finds the greedy tour without modifying the graph or the order of its edges
+	 * @param graph the graph
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph){
+		int N = graph.getN();
+		if (N < 3){ //too few edges to close a cycle greedily
+			int[] path = new int[N + 1];
+			if (N == 2) path[1] = 1;
+			return path;
+		}
+		Edge[] edges;
+		if (graph.isIntegral()){
+			edges = sortIntegral(graph); //already a copy
+		} else {
+			edges = Arrays.copyOf(graph.getEdges(), graph.getEdges().length); //sort a copy, other solvers may share the graph
+			Quick.sort(edges);
+		}
+		Edge[] chosen = select(edges, new UnionFind(N), N);
+		int[][] adj = new int[N][2]; //the two tour neighbors of every vertex
+		int[] degree = new int[N];
+		for (Edge edge : chosen){
+			adj[edge.getRow()][degree[edge.getRow()]++] = edge.getCol();
+			adj[edge.getCol()][degree[edge.getCol()]++] = edge.getRow();
+		}
+		int[] path = new int[N + 1];
+		int prev = 0;
+		int cur = Math.min(adj[0][0], adj[0][1]); //the same direction the depth first search takes
+		for (int i = 1; i < N; i++){
+			path[i] = cur;
+			int next = adj[cur][0] == prev ? adj[cur][1] : adj[cur][0];
+			prev = cur;
+			cur = next;
+		}
+		return path;
+	}
+	
+	public static void main(String args[]) throws IOException{
 		if (args.length < 2){ // checks to see if the number of arguments is correct
-			System.out.println("Usage: java GreedyTSP n seed");
+			System.out.println("Usage: java GreedyTSP n seed [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
 			System.exit(0);
 		}
 		int N;
@@ -190,44 +281,28 @@ public class GreedyTSP {
 			System.out.println("Number of vertices must be greater than 0");
 			System.exit(0);
 		}
+		TourWriter out = TourWriter.fromArgs(args); //the output stage for the tour and diagnostics
 		long start = System.currentTimeMillis();
-		Graph graph = new Graph(N, seed);//creates the graph with the given N and seed
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
 		Edge[] edges = graph.getEdges();//retrieve the array of edges
-		Quick.sort(edges); //sort the edgeds
+		if (graph.isIntegral()){
+			edges = sortIntegral(graph); //whole number weights sort as packed longs
+		} else {
+			Quick.sort(edges); //sort the edgeds
+		}
 		UnionFind detection = new UnionFind(N); //creates an instance of the cycle and repetition detection defined in UnionFind
-		if (N <= 10){ //if the number of vertices is less than 10, then print the vertices and the matrix
+		if (N <= 10 && !out.isQuiet()){ //if the number of vertices is less than 10, then print the vertices and the matrix
 			graph.printVertices();//prints the vertices
 			graph.printMatrix();//prints the graph representation
 		}
-		Edge[] MST = new Edge[N]; //instantiates an array of edges representing a minimum spanning tree
-		int pos = 0; //the current position in the edges array
-		int includedCount = 0; //the number of edges included in the MST
+		Edge[] MST = select(edges, detection, N); //the edges of the greedy tour
 		double distance = 0.0; //the accumulated distance in the MST
-		while (includedCount < N){
-			Edge edge = edges[pos]; //retrieves the current edge to be chosen
-			int row = edge.getRow(); //gets the first vertex of the edge
-			int col = edge.getCol(); //gets the second vertex of the edge
-			int root1 = detection.find(row); //finds the parent/root of the row
-			int root2 = detection.find(col); //finds the parent/root of the col
-			if (root1 != root2 && !detection.isThird(row, col)){ //if the parent/root of both vertices are not the same
-																	//AND the edge is not the third edge from either vertex
-				MST[includedCount] = edges[pos]; //store the edge in the MST
-				includedCount++; 
-				detection.union(root1, root2); //unify the subtrees
-				detection.incrCount(row, col); //increment the count value of the vertex for the isThird Method
-				distance += graph.getWeight(row, col); //accumulate the weight
-			} else if(includedCount == N-1 && !detection.isThird(row, col)){ //Do the same without cycle detection for the last element in the MST
-				MST[includedCount] = edges[pos];
-				includedCount++;
-				detection.union(root1, root2);
-				detection.incrCount(row, col);
-				distance += graph.getWeight(row, col);
-			}
-			pos++; //increment the position in the edges array
+		for (Edge edge : MST){
+			distance += graph.getWeight(edge.getRow(), edge.getCol()); //accumulate the weight
 		}
 		graph.updateGraph(MST); //convert original graph to greedy graph
 		
-		if (N <= 10){ //if the number of vertices is less than 10, then print the vertices and the matrix
+		if (N <= 10 && !out.isQuiet()){ //if the number of vertices is less than 10, then print the vertices and the matrix
 			System.out.print("Greedy graph:");
 			graph.printMatrix();
 		System.out.println("Edges of tour from greedy graph:");
@@ -237,11 +312,9 @@ public class GreedyTSP {
 		System.out.println();
 		}
 		int[] path = graph.DFS(0); //find the path in the greedy graph
-		System.out.printf("Distance using greedy: %s for path ", df.format(distance));
-		for (int i = 0; i <= N ; i++){
-			System.out.printf("%d ", path[i]);
-		}
+		out.writeTour("Distance using greedy: ", distance, path); //streams the path through the output stage
 		long end = System.currentTimeMillis();
-		System.out.printf("\nRuntime for greedy TSP   : %d milliseconds\n\n", end-start);
+		out.printf("Runtime for greedy TSP   : %d milliseconds\n\n", end-start);
+		out.close();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The Held-Karp lower bound of the Traveling Salesman Problem. Repeatedly finds minimum 1-trees with
+ * the prim's algorithm of MstTSP under Lagrangian vertex penalties and moves the penalties by
+ * subgradient steps, so the bound tightens towards the optimal tour length. The final 1-tree also
+ * gives the alpha-nearness of every edge, which makes good candidate lists for local search.
+ */
+public class HeldKarpBound {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+
+	private Graph graph; //the graph being bounded
+	private int N; //the number of vertices
+	private double[] pi; //the current penalty of each vertex
+	private double[] bestPi; //the penalties of the best bound found
+	private int[] degree; //the degree of each vertex in the last 1-tree
+	private Vertex[] tree; //the last minimum spanning tree, in prim order
+	private int special; //the leaf of the last 1-tree that was given a second edge
+	private double second; //the weight of that second edge
+	private double bound; //the best bound found
+	private int iterations; //the number of 1-trees computed
+
+	/**
+	 * Constructor for the lower bound engine
+	 * @param graph the graph to bound
+	 */
+	public HeldKarpBound(Graph graph){
+		this.graph = graph;
+		this.N = graph.getN();
+		this.pi = new double[N];
+		this.bestPi = new double[N];
+		this.degree = new int[N];
+		this.bound = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Finds a minimum 1-tree under the current penalties. The minimum spanning tree over every vertex
+	 * is extended by the second cheapest edge of one of its leaves (a leaf's tree edge is always its
+	 * cheapest), choosing the leaf that makes the 1-tree heaviest.
+	 * @return the Lagrangian value w(T) - 2 * sum(pi)
+	 */
+	private double oneTree(){
+		tree = MstTSP.prim(graph, pi);
+		Arrays.fill(degree, 0);
+		double weight = 0.0;
+		for (int i = 1; i < N; i++){
+			degree[tree[i].id]++;
+			degree[tree[i].parent]++;
+			weight += tree[i].weight;
+		}
+		special = -1;
+		second = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < N; v++){
+			if (degree[v] != 1) continue;
+			double first = Double.POSITIVE_INFINITY;
+			double next = Double.POSITIVE_INFINITY;
+			for (int w = 0; w < N; w++){
+				if (w == v) continue;
+				double c = cost(v, w);
+				if (c < first){
+					next = first;
+					first = c;
+				} else if (c < next){
+					next = c;
+				}
+			}
+			if (next > second){
+				second = next;
+				special = v;
+			}
+		}
+		degree[special]++;
+		weight += second;
+		for (int v = 0; v < N; v++){
+			weight -= 2 * pi[v];
+		}
+		iterations++;
+		return weight;
+	}
+
+	/**
+	 * The penalized weight of an edge
+	 * @param v a vertex
+	 * @param w a second vertex
+	 * @return the weight of the edge plus the penalties of both ends
+	 */
+	private double cost(int v, int w){
+		return graph.getWeight(v, w) + pi[v] + pi[w];
+	}
+
+	/**
+	 * Runs the subgradient optimisation of Held, Wolfe and Crowder with a Polyak step size
+	 * @param upperBound the length of any known tour, used to size the steps
+	 * @param budget the time budget in milliseconds
+	 * @return the best lower bound found
+	 */
+	public double compute(double upperBound, long budget){
+		if (N < 3){ //the only tour goes back and forth along the single edge, if any
+			bound = N == 2 ? 2 * graph.getWeight(0, 1) : 0.0;
+			return bound;
+		}
+		long deadline = System.currentTimeMillis() + budget;
+		double lambda = 2.0; //the step scale, halved whenever the bound stalls
+		int period = Math.max(N / 2, 10); //the number of steps allowed without improvement
+		int stalled = 0;
+		while (lambda > 1e-6 && System.currentTimeMillis() < deadline){
+			double w = oneTree();
+			if (w > bound){
+				bound = w;
+				System.arraycopy(pi, 0, bestPi, 0, N);
+				stalled = 0;
+			} else if (++stalled >= period){
+				lambda /= 2;
+				stalled = 0;
+			}
+			double norm = 0.0; //the squared length of the subgradient d - 2
+			for (int v = 0; v < N; v++){
+				norm += (degree[v] - 2) * (degree[v] - 2);
+			}
+			if (norm == 0) break; //the 1-tree is a tour, so the bound is optimal
+			double step = lambda * (upperBound - w) / norm;
+			if (step <= 0) break; //the bound met the upper bound
+			for (int v = 0; v < N; v++){
+				pi[v] += step * (degree[v] - 2);
+			}
+		}
+		System.arraycopy(bestPi, 0, pi, 0, N);
+		return bound;
+	}
+
+	/**
+	 * Gets the best bound found by compute
+	 * @return the lower bound
+	 */
+	public double getBound(){
+		return bound;
+	}
+
+	/**
+	 * Gets the number of 1-trees computed so far
+	 * @return the number of iterations
+	 */
+	public int getIterations(){
+		return iterations;
+	}
+
+	/**
+	 * The optimality gap of a tour against the bound
+	 * @param length the length of the tour
+	 * @return the gap as a fraction of the bound, an upper bound on how far the tour is from optimal
+	 */
+	public double gap(double length){
+		return bound > 0 ? (length - bound) / bound : 0.0;
+	}
+
+	/**
+	 * Builds alpha-nearness candidate lists from the 1-tree of the best penalties. The alpha value of an
+	 * edge is the increase of the 1-tree weight when the 1-tree is forced to contain that edge.
+	 * @param k the number of candidates per vertex
+	 * @return for each vertex its k candidates, ordered by increasing alpha value
+	 */
+	public int[][] alphaCandidates(int k){
+		k = Math.min(k, N - 1);
+		if (N < 3){ //every other vertex is a candidate
+			int[][] candidates = new int[N][k];
+			for (int i = 0; i < N; i++){
+				for (int c = 0; c < k; c++) candidates[i][c] = 1 - i;
+			}
+			return candidates;
+		}
+		oneTree(); //rebuilds the 1-tree under the best penalties
+		int[] first = new int[N]; //the children of each vertex in the tree, as linked lists
+		int[] next = new int[N];
+		Arrays.fill(first, -1);
+		for (int i = 1; i < N; i++){
+			int v = tree[i].id;
+			next[v] = first[tree[i].parent];
+			first[tree[i].parent] = v;
+		}
+		int[] parent = new int[N];
+		double[] up = new double[N]; //the weight of the edge from each vertex to its parent
+		parent[tree[0].id] = -1;
+		for (int i = 1; i < N; i++){
+			parent[tree[i].id] = tree[i].parent;
+			up[tree[i].id] = tree[i].weight;
+		}
+		double secondOfSpecial = second;
+		double[] beta = new double[N]; //the heaviest edge on the tree path from the current vertex
+		int[] stack = new int[N];
+		int[] from = new int[N];
+		double[] alpha = new double[N];
+		int[][] candidates = new int[N][k];
+		Integer[] order = new Integer[N];
+		for (int i = 0; i < N; i++){
+			int top = 0;
+			stack[top] = i;
+			from[top++] = -1;
+			beta[i] = Double.NEGATIVE_INFINITY;
+			while (top > 0){ //walks the whole tree outwards from i
+				int v = stack[--top];
+				int came = from[top];
+				if (parent[v] >= 0 && parent[v] != came){
+					beta[parent[v]] = Math.max(beta[v], up[v]);
+					stack[top] = parent[v];
+					from[top++] = v;
+				}
+				for (int c = first[v]; c >= 0; c = next[c]){
+					if (c == came) continue;
+					beta[c] = Math.max(beta[v], up[c]);
+					stack[top] = c;
+					from[top++] = v;
+				}
+			}
+			for (int j = 0; j < N; j++){
+				if (j == i){
+					alpha[j] = Double.POSITIVE_INFINITY;
+				} else if (i == special || j == special){
+					alpha[j] = Math.max(0.0, cost(i, j) - secondOfSpecial); //replaces the second edge of the special leaf
+				} else {
+					alpha[j] = cost(i, j) - beta[j];
+				}
+				order[j] = j;
+			}
+			final int row = i;
+			Arrays.sort(order, (a, b) -> {
+				int result = Double.compare(alpha[a], alpha[b]);
+				return result != 0 ? result : Double.compare(graph.getWeight(row, a), graph.getWeight(row, b));
+			});
+			for (int c = 0; c < k; c++){
+				candidates[i][c] = order[c];
+			}
+		}
+		return candidates;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java HeldKarpBound n seed [-t millis] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 1000;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 ){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices must be greater than 0");
+			System.exit(0);
+		}
+		if (budget < 1){ //the bound needs time for at least one 1-tree
+			System.out.println("Time budget must be greater than 0");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		int[][] tours = {GreedyTSP.tour(graph), MstTSP.tour(graph), BitonicTSP.tour(graph)};
+		String[] names = {"greedy", "mst", "bitonic"};
+		double best = Double.POSITIVE_INFINITY;
+		for (int[] tour : tours){
+			best = Math.min(best, graph.tourLength(tour));
+		}
+		HeldKarpBound hk = new HeldKarpBound(graph);
+		double bound = hk.compute(best, budget);
+		long end = System.currentTimeMillis();
+		//the bound and the gaps are the result, so like a solver's tour they are printed even with -q
+		System.out.printf("Held-Karp lower bound: %s after %d 1-trees\n", df.format(bound), hk.getIterations());
+		for (int i = 0; i < tours.length; i++){
+			double length = graph.tourLength(tours[i]);
+			System.out.printf("Gap of %s tour: %s%% (length %s)\n", names[i], df.format(100 * hk.gap(length)),
+					df.format(length));
+		}
+		out.printf("Runtime for Held-Karp bound   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * An indexed binary min-heap of the integers 0..N-1 keyed by doubles. Unlike the priority queue of
+ * MstTSP, which rebuilds the whole heap after every round, a key can be raised or lowered in
+ * O(log N) and no objects are allocated after construction.
+ */
+public class IndexMinPQ {
+	private int[] heap; //the indices in heap order, starting at position 1
+	private int[] pos; //the position of each index in heap, 0 if it is not queued
+	private double[] key; //the key of each index
+	private int size; //the number of queued indices
+
+	/**
+	 * Constructor for the heap
+	 * @param N the number of indices it can hold
+	 */
+	public IndexMinPQ(int N){
+		this.heap = new int[N + 1];
+		this.pos = new int[N];
+		this.key = new double[N];
+	}
+
+	/**
+	 * Determines if the heap is empty
+	 * @return true if no index is queued
+	 */
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of queued indices
+	 * @return the size
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Determines if an index is queued
+	 * @param i the index
+	 * @return true if it is in the heap
+	 */
+	public boolean contains(int i){
+		return pos[i] != 0;
+	}
+
+	/**
+	 * Gets the key of a queued index
+	 * @param i the index
+	 * @return its key
+	 */
+	public double getKey(int i){
+		return key[i];
+	}
+
+	/**
+	 * Queues an index
+	 * @param i the index, not already queued
+	 * @param k its key
+	 */
+	public void insert(int i, double k){
+		heap[++size] = i;
+		pos[i] = size;
+		key[i] = k;
+		swim(size);
+	}
+
+	/**
+	 * Gets the index with the smallest key without removing it
+	 * @return the index
+	 */
+	public int minIndex(){
+		return heap[1];
+	}
+
+	/**
+	 * Removes the index with the smallest key
+	 * @return the index
+	 */
+	public int delMin(){
+		int min = heap[1];
+		exch(1, size--);
+		sink(1);
+		pos[min] = 0;
+		return min;
+	}
+
+	/**
+	 * Empties the heap in time proportional to its size rather than N, so it can be reused for many
+	 * small searches
+	 */
+	public void clear(){
+		for (int k = 1; k <= size; k++){
+			pos[heap[k]] = 0;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Changes the key of a queued index, moving it up or down as needed
+	 * @param i the index
+	 * @param k the new key
+	 */
+	public void change(int i, double k){
+		double old = key[i];
+		key[i] = k;
+		if (k < old){
+			swim(pos[i]);
+		} else {
+			sink(pos[i]);
+		}
+	}
+
+	/**
+	 * Moves an entry up while it is smaller than its parent
+	 * @param k the position
+	 */
+	private void swim(int k){
+		while (k > 1 && key[heap[k]] < key[heap[k / 2]]){
+			exch(k, k / 2);
+			k = k / 2;
+		}
+	}
+
+	/**
+	 * Moves an entry down while a child is smaller
+	 * @param k the position
+	 */
+	private void sink(int k){
+		while (2 * k <= size){
+			int j = 2 * k;
+			if (j < size && key[heap[j + 1]] < key[heap[j]]) j++;
+			if (key[heap[k]] <= key[heap[j]]) break;
+			exch(k, j);
+			k = j;
+		}
+	}
+
+	/**
+	 * Swaps two entries
+	 * @param i a position
+	 * @param j another position
+	 */
+	private void exch(int i, int j){
+		int temp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = temp;
+		pos[heap[i]] = i;
+		pos[heap[j]] = j;
+	}
+}
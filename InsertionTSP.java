@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Farthest and cheapest insertion. The tour grows from vertex 0 as a doubly linked cycle, and every
+ * vertex not yet on it waits in an IndexMinPQ keyed by its distance to the tour (farthest) or by the
+ * cost of its best insertion (cheapest). A PointGrid holds the tour vertices, so the best insertion
+ * of a vertex is only searched on the edges around its nearest tour vertices instead of along the
+ * whole tour.
+ */
+public class InsertionTSP {
+	private static final int K = 8; //the nearest tour vertices whose edges are tried for an insertion
+
+	private Graph graph; //the graph being toured
+	private int N; //the number of vertices
+	private int[] next; //the successor of each tour vertex
+	private int[] prev; //the predecessor of each tour vertex
+	private PointGrid grid; //the tour vertices by location
+	private int size; //the number of vertices on the tour
+	private int capacity; //the tour size the grid's cells were sized for
+	private IndexMinPQ pq; //the vertices not yet on the tour
+	private int[] near; //the result of the last grid query
+	private double[] dist; //the squared distances of the last grid query
+	private int edge; //the tour vertex whose outgoing edge was the best insertion of the last query
+
+	/**
+	 * Constructor for the insertion engine, which starts a tour holding only vertex 0
+	 * @param graph the graph, which is left untouched
+	 */
+	private InsertionTSP(Graph graph){
+		this.graph = graph;
+		this.N = graph.getN();
+		this.next = new int[N];
+		this.prev = new int[N];
+		this.capacity = Math.min(N, 4);
+		this.grid = new PointGrid(graph.getVertices(), capacity);
+		this.pq = new IndexMinPQ(N);
+		this.near = new int[K];
+		this.dist = new double[K];
+		grid.add(0);
+		this.size = 1;
+	}
+
+	/**
+	 * Builds a tour by farthest insertion: the vertex farthest from the tour is inserted where it
+	 * lengthens the tour least. Distances to the tour only ever shrink, so the queued keys are upper
+	 * bounds that are refreshed lazily: the top vertex is measured against the grid and only taken
+	 * once its exact distance still beats every other bound.
+	 * @param graph the graph, which is left untouched
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] farthest(Graph graph){
+		InsertionTSP engine = new InsertionTSP(graph);
+		for (int v = 1; v < engine.N; v++){
+			engine.pq.insert(v, -graph.getWeight(0, v)); //the heap is a min-heap, so distances are negated
+		}
+		while (!engine.pq.isEmpty()){
+			int v = engine.pq.minIndex();
+			engine.grid.nearest(v, 1, engine.near, engine.dist);
+			double exact = -graph.getWeight(v, engine.near[0]);
+			if (exact > engine.pq.getKey(v) + 1e-9){ //a vertex inserted since then is nearer
+				engine.pq.change(v, exact);
+				continue;
+			}
+			engine.pq.delMin();
+			engine.bestInsertion(v);
+			engine.insertAfter(engine.edge, v);
+		}
+		return engine.path();
+	}
+
+	/**
+	 * Builds a tour by cheapest insertion: the vertex whose best insertion lengthens the tour least is
+	 * inserted there. Each vertex is kept on the dependents list of the tour edge its best insertion
+	 * uses. An insertion removes one edge, so only that edge's dependents lose their insertion; the two
+	 * new edges are offered to the vertices near the inserted one, lowering their keys. Losing an edge
+	 * can only raise a vertex's cost, so its old key stays a lower bound and, as in farthest, it is
+	 * only searched again once it reaches the top of the heap.
+	 * @param graph the graph, which is left untouched
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] cheapest(Graph graph){
+		InsertionTSP engine = new InsertionTSP(graph);
+		int N = engine.N;
+		int[][] neighbors = CandidateLists.spatial(graph, 2 * K); //from the grid, as a full scan would be O(N^2)
+		int[] best = new int[N]; //the tour vertex whose outgoing edge is each vertex's best insertion
+		int[] head = new int[N]; //the first dependent of each tour vertex's outgoing edge, -1 if none
+		int[] after = new int[N]; //the next dependent of the same edge
+		int[] before = new int[N]; //the previous dependent of the same edge, -1 at the head
+		boolean[] stale = new boolean[N]; //true if the edge of a vertex's best insertion is gone
+		Arrays.fill(head, -1);
+		for (int v = 1; v < N; v++){ //every vertex starts on the loop at vertex 0
+			engine.pq.insert(v, 2 * graph.getWeight(0, v));
+			best[v] = 0;
+			attach(head, after, before, 0, v);
+		}
+		while (!engine.pq.isEmpty()){
+			int v = engine.pq.minIndex();
+			if (stale[v]){ //its key is a lower bound, so only the top vertex needs a fresh search
+				engine.pq.change(v, engine.bestInsertion(v));
+				best[v] = engine.edge;
+				attach(head, after, before, engine.edge, v);
+				stale[v] = false;
+				continue;
+			}
+			engine.pq.delMin();
+			int i = best[v];
+			detach(head, after, before, i, v);
+			engine.insertAfter(i, v);
+			for (int w = head[i]; w != -1; w = after[w]){ //the edge leaving i is gone
+				stale[w] = true;
+			}
+			head[i] = -1;
+			for (int u : neighbors[v]){ //the new edges i-v and v-j, offered to the vertices near v
+				if (!engine.pq.contains(u)) continue;
+				double cost = engine.pq.getKey(u);
+				for (int t = i; t != engine.next[v]; t = engine.next[t]){
+					double c = engine.cost(t, u);
+					if (c < cost){
+						cost = c;
+						if (!stale[u]) detach(head, after, before, best[u], u);
+						stale[u] = false; //c beats the lower bound, so it is the best insertion
+						best[u] = t;
+						attach(head, after, before, t, u);
+						engine.pq.change(u, c);
+					}
+				}
+			}
+		}
+		return engine.path();
+	}
+
+	/**
+	 * Puts a vertex at the head of an edge's dependents
+	 * @param head the first dependent of each edge
+	 * @param after the next dependent
+	 * @param before the previous dependent
+	 * @param t the tour vertex the edge leaves
+	 * @param v the vertex
+	 */
+	private static void attach(int[] head, int[] after, int[] before, int t, int v){
+		after[v] = head[t];
+		before[v] = -1;
+		if (head[t] != -1) before[head[t]] = v;
+		head[t] = v;
+	}
+
+	/**
+	 * Takes a vertex off an edge's dependents
+	 * @param head the first dependent of each edge
+	 * @param after the next dependent
+	 * @param before the previous dependent
+	 * @param t the tour vertex the edge leaves
+	 * @param v the vertex
+	 */
+	private static void detach(int[] head, int[] after, int[] before, int t, int v){
+		if (before[v] == -1){
+			head[t] = after[v];
+		} else {
+			after[before[v]] = after[v];
+		}
+		if (after[v] != -1) before[after[v]] = before[v];
+	}
+
+	/**
+	 * Searches the edges on both sides of a vertex's nearest tour vertices for its best insertion
+	 * @param v the vertex, not on the tour
+	 * @return the cost of the best insertion, whose edge is left in edge
+	 */
+	private double bestInsertion(int v){
+		int found = grid.nearest(v, K, near, dist);
+		double best = Double.POSITIVE_INFINITY;
+		for (int n = 0; n < found; n++){
+			int t = near[n];
+			double c = cost(t, v);
+			if (c < best){
+				best = c;
+				edge = t;
+			}
+			c = cost(prev[t], v);
+			if (c < best){
+				best = c;
+				edge = prev[t];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The cost of inserting a vertex on a tour edge
+	 * @param t the tour vertex the edge leaves
+	 * @param v the vertex
+	 * @return how much longer the tour gets
+	 */
+	private double cost(int t, int v){
+		return graph.getWeight(t, v) + graph.getWeight(v, next[t]) - graph.getWeight(t, next[t]);
+	}
+
+	/**
+	 * Inserts a vertex on the tour edge leaving t
+	 * @param t the tour vertex
+	 * @param v the vertex
+	 */
+	private void insertAfter(int t, int v){
+		int j = next[t];
+		next[t] = v;
+		prev[v] = t;
+		next[v] = j;
+		prev[j] = v;
+		grid.add(v);
+		if (++size >= capacity && capacity < N) regrid();
+	}
+
+	/**
+	 * Rebuilds the grid for twice the tour size. A grid sized for all N vertices while holding only the
+	 * few already on the tour would make every early query scan mostly empty cells.
+	 */
+	private void regrid(){
+		capacity = Math.min(N, 2 * capacity);
+		grid = new PointGrid(graph.getVertices(), capacity);
+		grid.add(0);
+		for (int v = next[0]; v != 0; v = next[v]){
+			grid.add(v);
+		}
+	}
+
+	/**
+	 * Reads the finished tour as a path
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	private int[] path(){
+		int[] path = new int[N + 1];
+		for (int i = 1, v = next[0]; i < N; i++, v = next[v]){
+			path[i] = v;
+		}
+		return path;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java InsertionTSP n seed [-m farthest|cheapest] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		String mode = "farthest";
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-m")) mode = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices must be greater than 0");
+			System.exit(0);
+		}
+		if (!mode.equals("farthest") && !mode.equals("cheapest")){
+			System.out.println("Mode must be farthest or cheapest");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		int[] path = mode.equals("farthest") ? farthest(graph) : cheapest(graph);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using " + mode + " insertion: ", graph.tourLength(path), path);
+		out.printf("Runtime for %s insertion TSP   : %d milliseconds\n\n", mode, end - start);
+		out.close();
+	}
+}
@@ -0,0 +1,436 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * An island-model memetic genetic algorithm. Each island runs on its own thread with a population
+ * of primitive int[] tours, breeds children with an edge recombination crossover that keeps the
+ * edges the parents share, polishes them with 2-opt and periodically sends its best tour to the
+ * next island in a ring through a lock-free queue. Islands are seeded with the greedy and mst tours.
+ */
+public class IslandGA {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+
+	private Graph graph; //the shared, read-only graph
+	private int[][] neighbors; //the shared candidate lists
+	private int[][] seeds; //the constructor tours every island starts from
+	private Island[] islands; //the islands, in migration order
+	private AtomicReference<Tour> best; //the best tour found by any island
+	private long every; //the milliseconds between population snapshots, 0 without a checkpoint
+	private Tour[][] restored; //the populations read from a checkpoint, or null
+	private long spent; //the milliseconds spent before a resumed run started
+	private long bred; //the children bred before a resumed run started
+
+	/**
+	 * The state of one island. Only its own thread touches it, apart from the inbox.
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Island implements Runnable {
+		private int[][] population; //the tours, N+1 entries each
+		private double[] lengths; //the length of each tour
+		private ConcurrentLinkedQueue<Tour> inbox; //migrants sent by the previous island
+		private SplittableRandom random; //the island's own random generator
+		private TwoOpt search; //the island's local search
+		private int[][] adj; //the union of the parents' tour neighbors, four slots per vertex
+		private int[] degree; //the number of used slots of each vertex
+		private boolean[] visited; //the vertices already in the child
+		private int[] child; //the child being built
+		private int[] scratch; //scratch space for kicks
+		private long deadline; //the time to stop at
+		private int generations; //the number of children bred
+		private int interval; //the number of children between migrations
+		private Island next; //the island migrants are sent to
+		private volatile Tour[] saved; //the latest copy of the population, for checkpoints
+		private long savedAt; //the time of that copy
+		private Tour[] start; //the population to resume from, or null
+
+		/**
+		 * Constructor for an island
+		 * @param size the population size
+		 * @param random the random generator
+		 */
+		public Island(int size, SplittableRandom random){
+			int N = graph.getN();
+			this.population = new int[size][N + 1];
+			this.lengths = new double[size];
+			this.inbox = new ConcurrentLinkedQueue<Tour>();
+			this.random = random;
+			this.adj = new int[N][4];
+			this.degree = new int[N];
+			this.visited = new boolean[N];
+			this.child = new int[N + 1];
+			this.scratch = new int[N + 1];
+		}
+
+		/**
+		 * Fills the population with improved, perturbed copies of the seed tours
+		 */
+		private void populate(){
+			int N = graph.getN();
+			search = new TwoOpt(graph, neighbors);
+			if (start != null){ //a resumed island picks up its saved population as it was
+				for (int i = 0; i < population.length; i++){
+					start[i].copyPath(population[i]);
+					lengths[i] = start[i].getLength();
+					publish(population[i], lengths[i]);
+				}
+				return;
+			}
+			for (int i = 0; i < population.length; i++){
+				System.arraycopy(seeds[i % seeds.length], 0, population[i], 0, N + 1);
+				if (i >= seeds.length) MultiStartTSP.kick(random, population[i], scratch, 1 + N / 20, null);
+				lengths[i] = search.improve(population[i]);
+				publish(population[i], lengths[i]);
+			}
+		}
+
+		@Override
+		public void run(){ //already documented
+			populate();
+			if (every > 0) snapshot();
+			long now;
+			while ((now = System.currentTimeMillis()) < deadline && !Thread.currentThread().isInterrupted()){
+				if (every > 0 && now - savedAt >= every) snapshot();
+				int a = tournament();
+				int b = tournament();
+				if (a == b) continue;
+				crossover(population[a], population[b]);
+				double length = search.improve(child);
+				accept(child, length);
+				if (++generations % interval == 0){
+					next.inbox.offer(new Tour(population[bestIndex()], lengths[bestIndex()]));
+				}
+				Tour migrant;
+				while ((migrant = inbox.poll()) != null){
+					migrant.copyPath(child);
+					accept(child, migrant.getLength());
+				}
+			}
+		}
+
+		/**
+		 * Publishes an immutable copy of the population for the checkpoint thread to write
+		 */
+		private void snapshot(){
+			Tour[] copy = new Tour[population.length];
+			for (int i = 0; i < population.length; i++){
+				copy[i] = new Tour(population[i], lengths[i]);
+			}
+			saved = copy;
+			savedAt = System.currentTimeMillis();
+		}
+
+		/**
+		 * Picks the shorter of two random tours
+		 * @return the index of the chosen tour
+		 */
+		private int tournament(){
+			int a = random.nextInt(population.length);
+			int b = random.nextInt(population.length);
+			return lengths[a] <= lengths[b] ? a : b;
+		}
+
+		/**
+		 * Replaces the longest tour by a new one if the new one is shorter and not already present
+		 * @param path the new tour
+		 * @param length its length
+		 */
+		private void accept(int[] path, double length){
+			int worst = 0;
+			for (int i = 0; i < population.length; i++){
+				if (Math.abs(lengths[i] - length) < 1e-7) return; //treats equal lengths as duplicates
+				if (lengths[i] > lengths[worst]) worst = i;
+			}
+			if (length >= lengths[worst]) return;
+			System.arraycopy(path, 0, population[worst], 0, path.length);
+			lengths[worst] = length;
+			publish(path, length);
+		}
+
+		/**
+		 * Finds the shortest tour of the island
+		 * @return its index
+		 */
+		private int bestIndex(){
+			int best = 0;
+			for (int i = 1; i < population.length; i++){
+				if (lengths[i] < lengths[best]) best = i;
+			}
+			return best;
+		}
+
+		/**
+		 * Edge recombination: walks from vertex 0 along the union of both parents' edges, preferring
+		 * edges both parents share and then the neighbor with the fewest remaining options. When no
+		 * parent edge is left the nearest unvisited candidate is taken instead.
+		 * @param p1 the first parent
+		 * @param p2 the second parent
+		 */
+		private void crossover(int[] p1, int[] p2){
+			int N = graph.getN();
+			Arrays.fill(degree, 0);
+			Arrays.fill(visited, false);
+			link(p1);
+			link(p2);
+			int cur = 0;
+			child[0] = 0;
+			visited[0] = true;
+			for (int i = 1; i < N; i++){
+				int next = -1;
+				int fewest = Integer.MAX_VALUE;
+				for (int s = 0; s < degree[cur]; s++){
+					int v = adj[cur][s];
+					if (visited[v]) continue;
+					boolean shared = false;
+					for (int t = 0; t < s; t++){
+						if (adj[cur][t] == v) shared = true;
+					}
+					int options = shared ? -1 : remaining(v); //shared edges always win
+					if (options < fewest || (options == fewest && random.nextBoolean())){
+						fewest = options;
+						next = v;
+					}
+				}
+				if (next < 0) next = nearestUnvisited(cur);
+				child[i] = next;
+				visited[next] = true;
+				cur = next;
+			}
+			child[N] = 0;
+		}
+
+		/**
+		 * Adds the edges of a tour to the union adjacency
+		 * @param path the tour
+		 */
+		private void link(int[] path){
+			int N = graph.getN();
+			for (int i = 0; i < N; i++){
+				int u = path[i];
+				int v = path[i + 1];
+				adj[u][degree[u]++] = v;
+				adj[v][degree[v]++] = u;
+			}
+		}
+
+		/**
+		 * Counts the unvisited union neighbors of a vertex
+		 * @param v the vertex
+		 * @return the number of options left at v
+		 */
+		private int remaining(int v){
+			int count = 0;
+			for (int s = 0; s < degree[v]; s++){
+				if (!visited[adj[v][s]]) count++;
+			}
+			return count;
+		}
+
+		/**
+		 * Finds the nearest unvisited vertex, checking the candidate list before every vertex
+		 * @param v the current vertex
+		 * @return the nearest unvisited vertex
+		 */
+		private int nearestUnvisited(int v){
+			for (int c : neighbors[v]){
+				if (!visited[c]) return c;
+			}
+			int next = -1;
+			double nearest = Double.POSITIVE_INFINITY;
+			for (int w = 0; w < graph.getN(); w++){
+				if (!visited[w] && graph.getWeight(v, w) < nearest){
+					nearest = graph.getWeight(v, w);
+					next = w;
+				}
+			}
+			return next;
+		}
+	}
+
+	/**
+	 * Constructor for the genetic algorithm
+	 * @param graph the graph to solve
+	 * @param k the number of candidate neighbors per vertex
+	 */
+	public IslandGA(Graph graph, int k){
+		this.graph = graph;
+		this.neighbors = CandidateLists.spatial(graph, k);
+		this.seeds = new int[][] {GreedyTSP.tour(graph), MstTSP.tour(graph)};
+		this.best = new AtomicReference<Tour>(new Tour(seeds[0], graph.tourLength(seeds[0])));
+	}
+
+	/**
+	 * Offers a tour to the global best, replacing it if the tour is shorter
+	 * @param path the path
+	 * @param length its length
+	 */
+	private void publish(int[] path, double length){
+		Tour current = best.get();
+		while (length < current.getLength() && !best.compareAndSet(current, new Tour(path, length))){
+			current = best.get();
+		}
+	}
+
+	/**
+	 * Runs the islands until the deadline. With a checkpoint every island's population is saved at
+	 * its interval, and a resumed run keeps the saved islands and only spends what is left of the budget.
+	 * @param count the number of islands, one thread each, ignored when resuming
+	 * @param size the population size of each island, ignored when resuming
+	 * @param interval the number of children between migrations
+	 * @param budget the time budget in milliseconds, including any time spent before a resume
+	 * @param seed the seed of the islands' random generators
+	 * @param checkpoint where the populations are saved, or null
+	 * @return the best tour
+	 */
+	public Tour solve(int count, int size, int interval, long budget, long seed, Checkpoint checkpoint) throws InterruptedException, IOException{
+		long begin = System.currentTimeMillis();
+		long deadline = begin + Math.max(0, budget - spent);
+		every = checkpoint == null ? 0 : checkpoint.getInterval();
+		if (restored != null){
+			count = restored.length;
+			size = restored[0].length;
+		}
+		SplittableRandom root = new SplittableRandom(seed + spent); //a resumed run breeds new children
+		islands = new Island[count];
+		for (int i = 0; i < count; i++){
+			islands[i] = new Island(size, root.split());
+			islands[i].deadline = deadline;
+			islands[i].interval = interval;
+			islands[i].start = restored == null ? null : restored[i];
+		}
+		for (int i = 0; i < count; i++){
+			islands[i].next = islands[(i + 1) % count]; //a ring of islands
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(count);
+		for (Island island : islands){
+			pool.execute(island);
+		}
+		pool.shutdown();
+		if (checkpoint == null){
+			pool.awaitTermination(budget + 60000, TimeUnit.MILLISECONDS);
+			return best.get();
+		}
+		while (!pool.awaitTermination(checkpoint.getInterval(), TimeUnit.MILLISECONDS)){
+			save(checkpoint, seed, spent + System.currentTimeMillis() - begin);
+		}
+		checkpoint.delete(); //the run is complete, nothing is left to resume
+		return best.get();
+	}
+
+	/**
+	 * Writes the latest population of every island, once all of them have one
+	 * @param checkpoint the checkpoint
+	 * @param seed the seed of the instance
+	 * @param elapsed the milliseconds spent so far
+	 */
+	private void save(Checkpoint checkpoint, long seed, long elapsed) throws IOException{
+		Tour[][] populations = new Tour[islands.length][];
+		for (int i = 0; i < islands.length; i++){
+			populations[i] = islands[i].saved;
+			if (populations[i] == null) return; //an island is still being seeded
+		}
+		long children = getGenerations();
+		checkpoint.save("island", graph, seed, out -> {
+			out.writeLong(elapsed);
+			out.writeLong(children);
+			out.writeInt(populations.length);
+			out.writeInt(populations[0].length);
+			for (Tour[] population : populations){
+				for (Tour tour : population){
+					out.writeDouble(tour.getLength());
+					Checkpoint.writeInts(out, tour.getPath());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Restores the islands and elapsed time of an interrupted run
+	 * @param checkpoint the checkpoint
+	 * @param seed the seed of the instance
+	 * @return true if there was a checkpoint to resume from
+	 */
+	public boolean resume(Checkpoint checkpoint, long seed) throws IOException{
+		DataInputStream in = checkpoint.resume("island", graph, seed);
+		if (in == null) return false;
+		spent = in.readLong();
+		bred = in.readLong();
+		restored = new Tour[in.readInt()][in.readInt()];
+		for (Tour[] population : restored){
+			for (int i = 0; i < population.length; i++){
+				double length = in.readDouble();
+				population[i] = new Tour(Checkpoint.readInts(in), length);
+			}
+		}
+		in.close();
+		return true;
+	}
+
+	/**
+	 * Gets the number of children bred by every island
+	 * @return the total number of generations
+	 */
+	public long getGenerations(){
+		long total = bred;
+		if (islands == null) return total; //not started yet
+		for (Island island : islands){
+			total += island.generations;
+		}
+		return total;
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java IslandGA n seed [-t millis] [-i islands] [-p population] [-m interval] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-checkpoint file [-every millis] [--resume]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 10000;
+		int count = Runtime.getRuntime().availableProcessors();
+		int size = 30;
+		int interval = 50;
+		Checkpoint checkpoint; //where the populations are saved, or null
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			checkpoint = Checkpoint.fromArgs(args);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-i")) count = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-p")) size = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-m")) interval = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 3 || count < 1 || size < 2 || interval < 1){
+			System.out.println("Need at least 3 vertices, 1 island, 2 tours per island and a migration interval of 1");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		IslandGA ga = new IslandGA(graph, 10);
+		if (checkpoint != null && Checkpoint.isResume(args) && ga.resume(checkpoint, seed)){
+			count = ga.restored.length;
+			out.printf("Resuming after %d children on %d islands\n", ga.getGenerations(), count);
+		}
+		Tour best = ga.solve(count, size, interval, budget, seed, checkpoint);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using island GA: ", best.getLength(), best.getPath());
+		out.printf("Children: %d on %d islands\n", ga.getGenerations(), count);
+		out.printf("Runtime for island GA TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
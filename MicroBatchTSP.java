@@ -0,0 +1,329 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Solves a stream of tiny instances exactly, for workloads of millions of separate tours of a few
+ * vertices each. An instance is read as the int n followed by n int [x,y] pairs, and its answer is
+ * written as the byte n, the double length and the n vertices of the optimal tour as bytes, starting
+ * at vertex 0, in input order. Each instance is solved by the Held-Karp dynamic program over flat
+ * buffers that every worker allocates once; the subsets are visited in increasing order from a
+ * shared table of their members, so no Graph, Edge or matrix object is created per instance.
+ * Instances are read in blocks, and each block is split across the workers.
+ */
+public class MicroBatchTSP {
+	public static final int MAX_N = 16; //the largest instance, its table has 2^15 * 15 entries
+	private static final int BLOCK = 1 << 16; //the number of instances read at a time
+	private static final int[] START = new int[(1 << (MAX_N - 1)) + 1]; //where each subset's members begin in MEMBERS
+	private static final byte[] MEMBERS; //the members of every subset of the MAX_N-1 free vertices, in order
+
+	static {
+		int total = 0;
+		for (int mask = 0; mask < 1 << (MAX_N - 1); mask++){
+			START[mask] = total;
+			total += Integer.bitCount(mask);
+		}
+		START[1 << (MAX_N - 1)] = total;
+		MEMBERS = new byte[total];
+		for (int mask = 0, i = 0; mask < 1 << (MAX_N - 1); mask++){
+			for (int j = 0; j < MAX_N - 1; j++){
+				if ((mask & (1 << j)) != 0) MEMBERS[i++] = (byte) j;
+			}
+		}
+	}
+
+	private DistanceMetric metric; //the distance between two points
+	private List<Worker> workers; //one per thread
+	private ExecutorService pool; //runs the workers
+	private int[] offset; //where each instance of the block starts in coords, plus one end entry
+	private int[] coords; //the x,y pairs of every instance of the block, flat
+	private double[] lengths; //the answer lengths of the block
+	private byte[] tours; //the answer tours of the block, at the same offsets as the instances
+	private long solved; //the number of instances solved
+
+	/**
+	 * The buffers of one worker thread, reused for every instance it solves
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Worker {
+		private double[] d = new double[MAX_N * MAX_N]; //the distances of the current instance
+		private double[] cost = new double[(1 << (MAX_N - 1)) * (MAX_N - 1)]; //the dynamic program
+		private byte[] parent = new byte[(1 << (MAX_N - 1)) * (MAX_N - 1)]; //the back-pointers
+		private int[] a = new int[2]; //the first point of a distance
+		private int[] b = new int[2]; //the second point of a distance
+
+		/**
+		 * Solves the instances of the block from first up to but not including last
+		 * @param first the first instance
+		 * @param last one past the last instance
+		 */
+		public void solveRange(int first, int last){
+			for (int i = first; i < last; i++){
+				lengths[i] = solve(offset[i], offset[i + 1] - offset[i]);
+			}
+		}
+
+		/**
+		 * Solves one instance with the Held-Karp dynamic program over the vertices 1..n-1
+		 * @param at the offset of the instance in coords and tours
+		 * @param n the number of vertices
+		 * @return the optimal tour length
+		 */
+		private double solve(int at, int n){
+			for (int u = 0; u < n; u++){
+				for (int v = u; v < n; v++){
+					a[0] = coords[2 * (at + u)];
+					a[1] = coords[2 * (at + u) + 1];
+					b[0] = coords[2 * (at + v)];
+					b[1] = coords[2 * (at + v) + 1];
+					d[u * n + v] = d[v * n + u] = u == v ? 0.0 : metric.distance(a, b);
+				}
+			}
+			for (int i = 0; i < n; i++){
+				tours[at + i] = (byte) i; //the order for n <= 3, and the first entry for any n
+			}
+			if (n <= 3) return tour(n, at);
+			int m = n - 1; //the free vertices, bit j standing for vertex j+1
+			int full = (1 << m) - 1;
+			for (int j = 0; j < m; j++){
+				cost[(1 << j) * m + j] = d[j + 1];
+			}
+			for (int mask = 1; mask <= full; mask++){
+				if ((mask & (mask - 1)) == 0) continue; //single vertices were set above
+				for (int s = START[mask]; s < START[mask + 1]; s++){
+					int j = MEMBERS[s];
+					int prev = mask ^ (1 << j);
+					double best = Double.POSITIVE_INFINITY;
+					int from = 0;
+					for (int t = START[prev]; t < START[prev + 1]; t++){
+						int k = MEMBERS[t];
+						double c = cost[prev * m + k] + d[(k + 1) * n + j + 1];
+						if (c < best){
+							best = c;
+							from = k;
+						}
+					}
+					cost[mask * m + j] = best;
+					parent[mask * m + j] = (byte) from;
+				}
+			}
+			double best = Double.POSITIVE_INFINITY;
+			int last = 0;
+			for (int j = 0; j < m; j++){
+				double c = cost[full * m + j] + d[(j + 1) * n];
+				if (c < best){
+					best = c;
+					last = j;
+				}
+			}
+			for (int i = n - 1, mask = full; i >= 1; i--){ //walks the back-pointers from the end of the tour
+				tours[at + i] = (byte) (last + 1);
+				int prev = mask ^ (1 << last);
+				last = parent[mask * m + last];
+				mask = prev;
+			}
+			return best;
+		}
+
+		/**
+		 * The length of the tour stored for an instance
+		 * @param n the number of vertices
+		 * @param at the offset of the instance
+		 * @return the length
+		 */
+		private double tour(int n, int at){
+			double sum = 0.0;
+			for (int i = 0; i < n; i++){
+				sum += d[tours[at + i] * n + tours[at + (i + 1) % n]];
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Constructor for the engine
+	 * @param metric the distance between two points
+	 * @param threads the number of worker threads
+	 */
+	public MicroBatchTSP(DistanceMetric metric, int threads){
+		this.metric = metric;
+		this.workers = new ArrayList<Worker>();
+		for (int t = 0; t < threads; t++){
+			workers.add(new Worker());
+		}
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.offset = new int[BLOCK + 1];
+		this.coords = new int[2 * BLOCK * 8];
+		this.lengths = new double[BLOCK];
+		this.tours = new byte[BLOCK * 8];
+	}
+
+	/**
+	 * Solves every instance of the input and writes the answers in the same order
+	 * @param in the packed instances
+	 * @param out the packed answers
+	 */
+	public void run(DataInputStream in, DataOutputStream out) throws IOException, InterruptedException, ExecutionException{
+		try {
+			int count;
+			while ((count = read(in)) > 0){
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				int threads = workers.size();
+				for (int t = 0; t < threads; t++){
+					Worker worker = workers.get(t);
+					int first = t * count / threads;
+					int last = (t + 1) * count / threads;
+					tasks.add(() -> { worker.solveRange(first, last); return null; });
+				}
+				for (Future<Void> future : pool.invokeAll(tasks)){
+					future.get(); //rethrows any failure of a worker
+				}
+				for (int i = 0; i < count; i++){
+					int n = offset[i + 1] - offset[i];
+					out.writeByte(n);
+					out.writeDouble(lengths[i]);
+					out.write(tours, offset[i], n);
+				}
+				solved += count;
+			}
+			out.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reads up to one block of instances into the flat buffers, growing them if needed
+	 * @param in the packed instances
+	 * @return the number of instances read, 0 at the end of the input
+	 */
+	private int read(DataInputStream in) throws IOException{
+		int count = 0;
+		int at = 0;
+		while (count < BLOCK){
+			int n;
+			try {
+				n = in.readInt();
+			} catch (EOFException e){
+				break;
+			}
+			if (n < 1 || n > MAX_N) throw new IOException("Instance " + (solved + count) + " has " + n + " vertices, expected 1 to " + MAX_N);
+			if (2 * (at + n) > coords.length){
+				coords = Arrays.copyOf(coords, 2 * coords.length);
+				tours = Arrays.copyOf(tours, 2 * tours.length);
+			}
+			for (int i = 0; i < 2 * n; i++){
+				coords[2 * at + i] = in.readInt();
+			}
+			offset[count++] = at;
+			at += n;
+		}
+		offset[count] = at;
+		return count;
+	}
+
+	/**
+	 * Gets the number of instances solved
+	 * @return the count
+	 */
+	public long getSolved(){
+		return solved;
+	}
+
+	/**
+	 * Writes random instances in the input format, for testing and benchmarks
+	 * @param out the stream
+	 * @param count the number of instances
+	 * @param min the fewest vertices of an instance
+	 * @param max the most vertices of an instance
+	 * @param seed the seed of the generator
+	 */
+	static void generate(DataOutputStream out, int count, int min, int max, long seed) throws IOException{
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < count; i++){
+			int n = min + random.nextInt(max - min + 1);
+			out.writeInt(n);
+			for (int v = 0; v < 2 * n; v++){
+				out.writeInt(random.nextInt(1000));
+			}
+		}
+		out.flush();
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java MicroBatchTSP input output [-w threads] [-metric euclidean|squared|manhattan|haversine|nint]");
+			System.out.println("       java MicroBatchTSP -gen output count seed [-min n] [-max n]");
+			System.out.println("Use - for stdin or stdout");
+			System.exit(0);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		int min = 4;
+		int max = 12;
+		DistanceMetric metric = DistanceMetric.EUCLIDEAN;
+		try { //the try catch block to check if the arguments are actually numbers
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-w")) threads = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-min")) min = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-max")) max = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-metric")) metric = DistanceMetric.parse(args[i + 1]);
+			}
+			if (args[0].equals("-gen")){
+				int count = Integer.parseInt(args[2]);
+				long seed = Long.parseLong(args[3]);
+				if (min < 1 || max > MAX_N || min > max){
+					System.out.println("Instance sizes must be between 1 and " + MAX_N);
+					System.exit(0);
+				}
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(open(args[1]), 1 << 16))){
+					generate(out, count, min, max, seed);
+				}
+				return;
+			}
+		} catch(NumberFormatException | ArrayIndexOutOfBoundsException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (threads < 1){
+			System.out.println("Number of threads must be greater than 0");
+			System.exit(0);
+		}
+		InputStream input = args[0].equals("-") ? System.in : new FileInputStream(args[0]);
+		long start = System.currentTimeMillis();
+		MicroBatchTSP engine = new MicroBatchTSP(metric, threads);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(open(args[1]), 1 << 16))){
+			engine.run(in, out);
+		}
+		long end = System.currentTimeMillis();
+		System.err.printf("Solved %d instances on %d threads in %d milliseconds (%d per second)\n", engine.getSolved(),
+				threads, end - start, engine.getSolved() * 1000 / Math.max(1, end - start));
+	}
+
+	/**
+	 * Opens an output file, or stdout for -
+	 * @param name the file name
+	 * @return the stream
+	 */
+	private static OutputStream open(String name) throws IOException{
+		return name.equals("-") ? System.out : new FileOutputStream(name);
+	}
+}
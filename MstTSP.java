@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.text.DecimalFormat;
 
 /**
@@ -133,9 +134,57 @@ public class MstTSP {
 		
 	}
 	
-	public static void main(String args[]){
+	/**
+	 * Prim's algorithm over the completely connected graph, starting at vertex 0.
+	 * Optional per-vertex penalties are added to both ends of every edge, which is
+	 * what the Held-Karp 1-tree bound needs.
+	 * @param graph the graph to span
+	 * @param pi the penalty of each vertex, or null for plain weights
+	 * @return the vertices in the order they joined the tree, each holding its parent and the weight to it
+	 */
+	static Vertex[] prim(Graph graph, double[] pi){
+		int N = graph.getN();
+		PriorityQueue pq = new PriorityQueue(N - 1); //instantiate the priority queue
+		Vertex[] vertices = new Vertex[N];
+		Vertex u = new Vertex(0); //creates the first vertex, 0
+		vertices[0] = u;
+		int count = 1;
+		while (!pq.isEmpty()){ //continue doing this until pq is empty
+			for(int v = 1; v < N; v++){ //for all neighbors (completely connected graph)
+				if (v == u.id) continue; //except itself
+				if (pq.inPQ(v)){ //assure that the vertex in the pq
+					double weight = graph.getWeight(u.id, v); //get the weight between neighbor and vertex
+					if (pi != null) weight += pi[u.id] + pi[v];
+					if (weight < pq.getPriority(v)){ //if the weight is less than priority at v
+						pq.updateVertex(v, weight, u.id); //update the vertex and weight of v
+					}
+				}
+			}
+			pq.heapify(); //heapify the pq
+			u = pq.delMin(); //grab the highest priority element in pq
+			vertices[count++] = u;
+		}
+		return vertices;
+	}
+	
+	/**
+	 * Finds the mst tour: the pre-order walk of the minimum spanning tree from vertex 0
+	 * @param graph the graph, which is left untouched
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph){
+		int N = graph.getN();
+		Vertex[] vertices = prim(graph, null);
+		Graph mst = new Graph(N);
+		for (int i = 1; i < N; i++){
+			mst.updateGraph(vertices[i]);
+		}
+		return mst.DFS(0);
+	}
+	
+	public static void main(String args[]) throws IOException{
 		if (args.length < 2){ // checks to see if the number of arguments is correct
-			System.out.println("Usage: java GreedyTSP n seed");
+			System.out.println("Usage: java MstTSP n seed [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
 			System.exit(0);
 		}
 		int N;
@@ -153,41 +202,27 @@ public class MstTSP {
 			System.out.println("Number of vertices must be greater than 0");
 			System.exit(0);
 		}
-		Graph graph = new Graph(N, seed);//creates the graph with the given N and seed
-		if (N <= 10){ //if the number of vertices is less than 10, then print the vertices and the matrix
+		TourWriter out = TourWriter.fromArgs(args); //the output stage for the tour and diagnostics
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		if (N <= 10 && !out.isQuiet()){ //if the number of vertices is less than 10, then print the vertices and the matrix
 			graph.printVertices();//prints the vertices
 			graph.printMatrix();//prints the graph representation
 		}
 		long start = System.currentTimeMillis(); // start measuring time starting at prims
-		PriorityQueue pq = new PriorityQueue(N - 1); //instantiate the priority queue
-		Vertex[] vertices = new Vertex[N]; //stores the vertices for future reference
+		Vertex[] vertices = prim(graph, null); //stores the vertices for future reference
 		int[] vPos = new int[N]; //stores the positions of each vertex with id in index
-		Vertex u = new Vertex(0); //creates the first vertex, 0
 		Graph mst = new Graph(N); //instantiates the mst 
-		int count = 1; 
-		vertices[0] = u;
-		vPos[0] = 0;
 		double total = 0.0;
-		do {
-			for(int v = 1; v < N; v++){ //for all neighbors (completely connected graph)
-				if (v == u.id) continue; //except itself
-				if (pq.inPQ(v)){ //assure that the vertex in the pq
-					double weight = graph.getWeight(u.id, v); //get the weight between neighbor and vertex
-					if (weight < pq.getPriority(v)){ //if the weight is less than priority at v
-						pq.updateVertex(v, weight, u.id); //update the vertex and weight of v
-					}
-				}
-			}
-			pq.heapify(); //heapify the pq
-			u = pq.delMin(); //grab the highest priority element in pq
+		for (int count = 1; count < N; count++){
+			Vertex u = vertices[count];
 			mst.updateGraph(u); //add it to the mst
 			vPos[u.id] = count; //store and save position in vertices array
-			vertices[count++] = u;
 			total += mst.getWeight(u.id, u.parent); //update the mst total weight
-		} while (!pq.isEmpty()); //continue doing this until pq is empty
+		}
 		long end = System.currentTimeMillis(); //stop measuring time, prim is done
 		long elapsed = end - start;
-		if(N <= 10){  //print all info needed
+		boolean verbose = N <= 10 && !out.isQuiet();
+		if(verbose){  //print all info needed
 			System.out.print("Minimum Spanning Tree:");
 			mst.printMatrix();
 			System.out.printf("Total weight of mst: %s\n\n", df.format(total));
@@ -198,16 +233,14 @@ public class MstTSP {
 		double distance = 0.0; 
 		end = System.currentTimeMillis(); //stop measuring once dfs is done
 		for (int i = 0; i < N; i++){
-			if (N <= 10)System.out.println(vertices[vPos[path[i]]].toString());
+			if (verbose)System.out.println(vertices[vPos[path[i]]].toString());
 			distance += graph.getWeight(path[i], path[i+1]);
 		}
-		if (N <= 10) System.out.println();
+		if (verbose) System.out.println();
 		elapsed += end - start;
-		System.out.printf("Distance using mst: %s for path ", df.format(distance));
-		for (int i = 0; i <= N ; i++){
-			System.out.printf("%d ", path[i]);
-		}
-		System.out.printf("\nRuntime for Mst TSP   : %d milliseconds\n\n", elapsed);
+		out.writeTour("Distance using mst: ", distance, path);
+		out.printf("Runtime for Mst TSP   : %d milliseconds\n\n", elapsed);
+		out.close();
 		
 	}
 }
@@ -0,0 +1,318 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Multi-start local search. Every worker thread repeatedly builds a randomised starting tour
+ * (random-restart nearest neighbor, a perturbed greedy or bitonic tour, or a kicked copy of the best
+ * tour so far), improves it with 2-opt and offers it to a lock-free global best. The workers share
+ * one read-only graph and candidate lists; everything they write is thread-local.
+ */
+public class MultiStartTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+
+	private Graph graph; //the shared, read-only graph
+	private int[][] neighbors; //the shared candidate lists
+	private int[] greedy; //the greedy tour, perturbed by some restarts
+	private int[] bitonic; //the bitonic tour, perturbed by some restarts
+	private AtomicReference<Tour> best; //the best tour found by any worker
+	private LongAdder restarts; //the number of local searches finished
+	private long spent; //the milliseconds spent before a resumed run started
+
+	/**
+	 * Constructor for the multi-start engine
+	 * @param graph the graph to solve
+	 * @param k the number of candidate neighbors per vertex
+	 */
+	public MultiStartTSP(Graph graph, int k){
+		this.graph = graph;
+		this.neighbors = CandidateLists.spatial(graph, k);
+		this.greedy = GreedyTSP.tour(graph);
+		this.bitonic = BitonicTSP.tour(graph);
+		double length = graph.tourLength(greedy);
+		this.best = new AtomicReference<Tour>(new Tour(greedy, length));
+		this.restarts = new LongAdder();
+	}
+
+	/**
+	 * Offers a tour to the global best, replacing it if the tour is shorter
+	 * @param path the path
+	 * @param length its length
+	 * @return true if the tour became the global best
+	 */
+	public boolean offer(int[] path, double length){
+		Tour current = best.get();
+		Tour candidate = null;
+		while (length < current.getLength()){
+			if (candidate == null) candidate = new Tour(path, length);
+			if (best.compareAndSet(current, candidate)) return true;
+			current = best.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the best tour found so far
+	 * @return the best tour
+	 */
+	public Tour getBest(){
+		return best.get();
+	}
+
+	/**
+	 * Gets the number of restarts finished so far
+	 * @return the number of restarts
+	 */
+	public long getRestarts(){
+		return restarts.sum();
+	}
+
+	/**
+	 * Runs the workers until the deadline, snapshotting the incumbent at the checkpoint's interval.
+	 * A resumed run only spends what is left of the budget.
+	 * @param threads the number of worker threads
+	 * @param budget the time budget in milliseconds, including any time spent before a resume
+	 * @param seed the seed of the workers' random generators
+	 * @param checkpoint where the incumbent is saved, or null
+	 * @return the best tour
+	 */
+	public Tour solve(int threads, long budget, long seed, Checkpoint checkpoint) throws InterruptedException, IOException{
+		long start = System.currentTimeMillis();
+		long deadline = start + Math.max(0, budget - spent);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		SplittableRandom root = new SplittableRandom(seed + spent); //a resumed run explores new restarts
+		for (int t = 0; t < threads; t++){
+			SplittableRandom random = root.split();
+			pool.execute(() -> work(random, deadline));
+		}
+		pool.shutdown();
+		if (checkpoint == null){
+			pool.awaitTermination(budget + 60000, TimeUnit.MILLISECONDS);
+			return best.get();
+		}
+		while (!pool.awaitTermination(checkpoint.getInterval(), TimeUnit.MILLISECONDS)){
+			Tour incumbent = best.get();
+			long elapsed = spent + System.currentTimeMillis() - start;
+			long count = restarts.sum();
+			checkpoint.save("multistart", graph, seed, out -> {
+				out.writeLong(elapsed);
+				out.writeLong(count);
+				out.writeDouble(incumbent.getLength());
+				Checkpoint.writeInts(out, incumbent.getPath());
+			});
+		}
+		checkpoint.delete(); //the run is complete, nothing is left to resume
+		return best.get();
+	}
+
+	/**
+	 * Restores the incumbent, restart count and elapsed time of an interrupted run
+	 * @param checkpoint the checkpoint
+	 * @param seed the seed of the instance
+	 * @return true if there was a checkpoint to resume from
+	 */
+	public boolean resume(Checkpoint checkpoint, long seed) throws IOException{
+		DataInputStream in = checkpoint.resume("multistart", graph, seed);
+		if (in == null) return false;
+		spent = in.readLong();
+		restarts.add(in.readLong());
+		double length = in.readDouble();
+		offer(Checkpoint.readInts(in), length);
+		in.close();
+		return true;
+	}
+
+	/**
+	 * The loop of one worker thread
+	 * @param random the worker's own random generator
+	 * @param deadline the time to stop at
+	 */
+	private void work(SplittableRandom random, long deadline){
+		int N = graph.getN();
+		TwoOpt search = new TwoOpt(graph, neighbors);
+		int[] path = new int[N + 1];
+		int[] scratch = new int[N + 1];
+		boolean[] visited = new boolean[N];
+		int[] seeds = new int[6];
+		long round = 0;
+		while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()){
+			double length;
+			switch ((int) (round++ % 4)){
+			case 0:
+				nearestNeighbor(random, path, visited);
+				length = search.improve(path);
+				break;
+			case 1:
+				System.arraycopy(greedy, 0, path, 0, N + 1);
+				kick(random, path, scratch, 1 + N / 50, null);
+				length = search.improve(path);
+				break;
+			case 2:
+				System.arraycopy(bitonic, 0, path, 0, N + 1);
+				kick(random, path, scratch, 1 + N / 50, null);
+				length = search.improve(path);
+				break;
+			default: //iterated local search: one kick, repaired around its six endpoints only
+				best.get().copyPath(path);
+				int count = kick(random, path, scratch, 1, seeds);
+				length = search.improve(path, seeds, count);
+			}
+			restarts.increment();
+			offer(path, length);
+		}
+	}
+
+	/**
+	 * Builds a randomised nearest neighbor tour from a random start. Each step picks one of the
+	 * two nearest unvisited candidates, falling back to a scan of every vertex.
+	 * @param random the random generator
+	 * @param path the destination, N+1 entries
+	 * @param visited a scratch array of N entries
+	 */
+	private void nearestNeighbor(SplittableRandom random, int[] path, boolean[] visited){
+		int N = graph.getN();
+		Arrays.fill(visited, false);
+		int cur = random.nextInt(N);
+		int[] order = path; //builds the cyclic order in place, then rotates it to start at 0
+		order[0] = cur;
+		visited[cur] = true;
+		for (int i = 1; i < N; i++){
+			int next = -1;
+			int seen = 0;
+			for (int c : neighbors[cur]){
+				if (visited[c]) continue;
+				next = c;
+				if (++seen == 2 || random.nextInt(4) != 0) break; //usually the nearest, sometimes the second
+			}
+			if (next < 0){
+				double nearest = Double.POSITIVE_INFINITY;
+				for (int v = 0; v < N; v++){
+					if (!visited[v] && graph.getWeight(cur, v) < nearest){
+						nearest = graph.getWeight(cur, v);
+						next = v;
+					}
+				}
+			}
+			order[i] = next;
+			visited[next] = true;
+			cur = next;
+		}
+		int zero = 0;
+		while (order[zero] != 0) zero++;
+		rotate(order, zero, N);
+		path[N] = 0;
+	}
+
+	/**
+	 * Rotates the first n entries of an array left by r places
+	 * @param a the array
+	 * @param r the rotation
+	 * @param n the number of entries
+	 */
+	private static void rotate(int[] a, int r, int n){
+		reverse(a, 0, r - 1);
+		reverse(a, r, n - 1);
+		reverse(a, 0, n - 1);
+	}
+
+	/**
+	 * Reverses a[i..j]
+	 * @param a the array
+	 * @param i the first index
+	 * @param j the last index
+	 */
+	private static void reverse(int[] a, int i, int j){
+		while (i < j){
+			int t = a[i];
+			a[i++] = a[j];
+			a[j--] = t;
+		}
+	}
+
+	/**
+	 * Applies random double-bridge kicks, which 2-opt cannot undo in a single move
+	 * @param random the random generator
+	 * @param path the path, N+1 entries starting and ending at vertex 0
+	 * @param scratch a scratch array of N+1 entries
+	 * @param kicks the number of kicks
+	 * @param seeds receives the endpoints of the new edges if not null, six per kick
+	 * @return the number of endpoints stored in seeds
+	 */
+	static int kick(SplittableRandom random, int[] path, int[] scratch, int kicks, int[] seeds){
+		int N = path.length - 1;
+		if (N < 8) return 0;
+		int count = 0;
+		for (int k = 0; k < kicks; k++){
+			int p1 = 1 + random.nextInt(N - 3); //three cut points inside 1..N-1, keeping vertex 0 first
+			int p2 = p1 + 1 + random.nextInt(N - p1 - 2);
+			int p3 = p2 + 1 + random.nextInt(N - p2 - 1);
+			if (seeds != null){
+				int[] cuts = {p1, p2, p3};
+				for (int p : cuts){
+					seeds[count++] = path[p - 1];
+					seeds[count++] = path[p];
+				}
+			}
+			int n = 0;
+			for (int i = 0; i < p1; i++) scratch[n++] = path[i]; //A C B D
+			for (int i = p2; i < p3; i++) scratch[n++] = path[i];
+			for (int i = p1; i < p2; i++) scratch[n++] = path[i];
+			for (int i = p3; i <= N; i++) scratch[n++] = path[i];
+			System.arraycopy(scratch, 0, path, 0, N + 1);
+		}
+		return count;
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java MultiStartTSP n seed [-t millis] [-w threads] [-k neighbors] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-checkpoint file [-every millis] [--resume]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 5000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int k = 10;
+		Checkpoint checkpoint; //where the incumbent is saved, or null
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			checkpoint = Checkpoint.fromArgs(args);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-w")) threads = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-k")) k = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 || threads < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices and threads must be greater than 0");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		MultiStartTSP engine = new MultiStartTSP(graph, k);
+		if (checkpoint != null && Checkpoint.isResume(args) && engine.resume(checkpoint, seed)){
+			out.printf("Resuming after %d restarts at %s\n", engine.getRestarts(), df.format(engine.getBest().getLength()));
+		}
+		Tour best = engine.solve(threads, budget, seed, checkpoint);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using multi-start: ", best.getLength(), best.getPath());
+		out.printf("Restarts: %d on %d threads (%s per second)\n", engine.getRestarts(), threads,
+				df.format(engine.getRestarts() * 1000.0 / Math.max(1, end - start)));
+		out.printf("Runtime for multi-start TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
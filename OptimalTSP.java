@@ -1,3 +1,5 @@
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 
@@ -64,12 +66,13 @@ static void nextPermutation(int[] permutation){
  * @param path is the path excluding vertex 0 on both ends of the path
  * @param graph the representation of a completely connected connected euclidean graph
  * @param N the number of vertices in the graph
+ * @param verbose false if the paths should never be printed (quiet mode)
  */
-static double computeDistance(int[] path, Graph graph, int N){
+static double computeDistance(int[] path, Graph graph, int N, boolean verbose){
 	double sum = graph.getWeight(0, path[0]); // the sum to be returned is initialized with a base value
 											// of the distance between 0 and the first element of path
 	int pos; //the position in the path
-	if (N<=5){ //if the number of vertices in the graph is less than or equal to 5, then print a formatted
+	if (N<=5 && verbose){ //if the number of vertices in the graph is less than or equal to 5, then print a formatted
 				//representation of the path and its distance
 		
 		System.out.printf("Path: 0 %d", path[0]);
@@ -93,18 +96,50 @@ static double computeDistance(int[] path, Graph graph, int N){
 	return sum;
 }
 
+/**
+ * Finds the optimal tour by trying every permutation, without printing anything
+ * @param graph the graph, at most 13 vertices
+ * @return the path, N+1 entries starting and ending at vertex 0
+ */
+static int[] tour(Graph graph){
+	int N = graph.getN();
+	int[] path = new int[N + 1];
+	if (N < 3){ //nothing to permute
+		if (N == 2) path[1] = 1;
+		return path;
+	}
+	int[] permutations = new int[N-1];
+	int total = 1;
+	for (int i = 0; i < N-1; i++){
+		permutations[i] = i+1;
+		total = total * (i+1);
+	}
+	double best = computeDistance(permutations, graph, N, false);
+	int[] bestPath = Arrays.copyOf(permutations, permutations.length);
+	for (int i = 0; i < total-1; i++){
+		nextPermutation(permutations);
+		double distance = computeDistance(permutations, graph, N, false);
+		if (distance < best){
+			best = distance;
+			System.arraycopy(permutations, 0, bestPath, 0, permutations.length);
+		}
+	}
+	System.arraycopy(bestPath, 0, path, 1, N - 1);
+	return path;
+}
 
-public static void main(String [] args){
+public static void main(String [] args) throws IOException{
 	if (args.length < 2){ // checks to see if the number of arguments is correct
-		System.out.println("Usage: java OptimalTSP n seed");
+		System.out.println("Usage: java OptimalTSP n seed [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-checkpoint file [-every millis] [--resume]] [-q] [-o file.tour | -b file.bin]");
 		System.exit(0);
 	}
 	int N;
 	long seed;
+	Checkpoint checkpoint; //where the enumeration is saved, or null
 	try { //the try catch block to check if the arguments are actually numbers
 		N =Integer.parseInt(args[0]);
 		seed = Long.parseLong(args[1]);
-		
+		checkpoint = Checkpoint.fromArgs(args);
 	} catch(NumberFormatException e){
 		System.out.println("Command line args must be integers");
 		System.exit(0);
@@ -114,7 +149,8 @@ public static void main(String [] args){
 		System.out.println("Number of vertices must be between 1 and 13");
 		System.exit(0);
 	}
-	Graph graph = new Graph(N, seed);//creates the graph with the given N and seed
+	TourWriter out = TourWriter.fromArgs(args); //the output stage for the tour and diagnostics
+	Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
 	int[] permutations = new int[N-1]; // a new array to represent a path without vertex 0
 	int total= 1; //the base value to determine the total number of permutaions. 
 					//The variable 'total' represents (N-1)! 
@@ -123,31 +159,57 @@ public static void main(String [] args){
 		permutations[i] = i+1;
 		total = total * (i+1);
 	}
-	if (N <= 10){ //if the number of vertices is less than 10, then print the vertices and the matrix
+	boolean verbose = !out.isQuiet();
+	if (N <= 10 && verbose){ //if the number of vertices is less than 10, then print the vertices and the matrix
 		graph.printVertices();
 		graph.printMatrix();
 	}
 	long start = System.currentTimeMillis(); //record start time of the permutations algorithm
-	double distance = computeDistance(permutations, graph, N);  //compute distance of first path
-	double best = distance; //determine base first path to be the total distance of the path 0-1-2-...-(N-1)-0
-	int[] bestPath = Arrays.copyOf(permutations, permutations.length); //stores best path in an array called bestPath
-	for (int i = 0; i < total-1; i++ ){ //for every possible permutation
+	double distance;
+	double best;
+	int[] bestPath;
+	int from = 0; //the first loop index still to run
+	DataInputStream resumed = checkpoint != null && Checkpoint.isResume(args) ? checkpoint.resume("optimal", graph, seed) : null;
+	if (resumed != null){ //continues with the permutation and best tour of the snapshot
+		from = resumed.readInt();
+		System.arraycopy(Checkpoint.readInts(resumed), 0, permutations, 0, N - 1);
+		best = resumed.readDouble();
+		bestPath = Checkpoint.readInts(resumed);
+		resumed.close();
+		out.printf("Resuming at permutation %d of %d\n", from + 1, total);
+	} else {
+		distance = computeDistance(permutations, graph, N, verbose);  //compute distance of first path
+		best = distance; //determine base first path to be the total distance of the path 0-1-2-...-(N-1)-0
+		bestPath = Arrays.copyOf(permutations, permutations.length); //stores best path in an array called bestPath
+	}
+	for (int i = from; i < total-1; i++ ){ //for every possible permutation
 		nextPermutation(permutations); //compute next permutation by changing 'permutations'
-		distance = computeDistance(permutations, graph, N); //compute the total distance of the path that was just
+		distance = computeDistance(permutations, graph, N, verbose); //compute the total distance of the path that was just
 															//computed
 		if (distance < best){ //if the recently calculated distance is lower than the recorded best distance:
 			best = distance; //set the new best distance
 			bestPath = Arrays.copyOf(permutations, permutations.length);//copy the new best path
 		}
+		if (checkpoint != null && (i & 0xFFFF) == 0 && checkpoint.isDue()){ //snapshots the state after permutation i
+			int next = i + 1;
+			double shortest = best;
+			int[] shortestPath = bestPath;
+			checkpoint.save("optimal", graph, seed, o -> {
+				o.writeInt(next);
+				Checkpoint.writeInts(o, permutations);
+				o.writeDouble(shortest);
+				Checkpoint.writeInts(o, shortestPath);
+			});
+		}
 	} 
+	if (checkpoint != null) checkpoint.delete(); //the run is complete, nothing is left to resume
 	
-	System.out.printf("\nOptimal distance: %s for path 0", df.format(best));
-	
-	for (int i = 0; i < N-1; i++){
-		System.out.printf(" %d", bestPath[i]);
-	}
-	System.out.println(" 0");
+	out.printf("\n");
+	int[] path = new int[N + 1]; //the best permutation with vertex 0 on both ends
+	System.arraycopy(bestPath, 0, path, 1, N - 1);
+	out.writeTour("Optimal distance: ", best, path);
 	long end = System.currentTimeMillis();
-	System.out.printf("Runtime for optimal TSP   : %d milliseconds\n\n", end-start);
+	out.printf("Runtime for optimal TSP   : %d milliseconds\n\n", end-start);
+	out.close();
 }
 }
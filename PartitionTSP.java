@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Karp-style divide and conquer. The coordinates are split recursively at the median of their wider
+ * side until every cell holds at most M points. Each cell is solved on its own small graph by a chosen
+ * sub-solver on a fork/join pool, and sibling tours are stitched on the way back up by the cheapest
+ * exchange of one edge from each, searched among the points facing the other cell, followed by a
+ * windowed 2-opt repair around the two new edges. The full N x N matrix is never built, so peak
+ * memory is bounded by the cell size.
+ */
+public class PartitionTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int FACING = 12; //the points of each side tried as stitching edges
+	private static final int WINDOW = 24; //the positions on each side of a junction the repair looks at
+
+	/**
+	 * A node of the partition tree
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	static class Cell {
+		int[] ids; //the vertices in the cell, only kept for leaves
+		Cell left; //the lower half, null for a leaf
+		Cell right; //the upper half, null for a leaf
+		volatile int[] tour; //the tour of the cell as a cyclic order of vertex ids, once solved, possibly by a ClusterTSP handler thread
+
+		/**
+		 * Determines if the cell is a leaf
+		 * @return true if the cell has not been split
+		 */
+		boolean isLeaf(){
+			return left == null;
+		}
+	}
+
+	/**
+	 * The fork/join task that solves a cell and stitches the tours of its halves
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private static class Solve extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private int[][] pts; //the coordinates of every vertex
+		private Cell cell; //the cell to solve
+		private String solver; //the sub-solver of the leaves
+
+		/**
+		 * Constructor for the task
+		 * @param pts the coordinates
+		 * @param cell the cell
+		 * @param solver the sub-solver
+		 */
+		Solve(int[][] pts, Cell cell, String solver){
+			this.pts = pts;
+			this.cell = cell;
+			this.solver = solver;
+		}
+
+		@Override
+		protected int[] compute(){ //already documented
+			if (cell.isLeaf()){
+				if (cell.tour == null) cell.tour = solveCell(pts, cell.ids, solver); //leaves may come pre-solved
+				return cell.tour;
+			}
+			Solve left = new Solve(pts, cell.left, solver);
+			left.fork();
+			int[] b = new Solve(pts, cell.right, solver).compute();
+			int[] a = left.join();
+			cell.tour = merge(pts, a, b);
+			cell.left.tour = null; //the halves are no longer needed
+			cell.right.tour = null;
+			return cell.tour;
+		}
+	}
+
+	/**
+	 * Splits a set of vertices into a tree of cells of at most M vertices
+	 * @param pts the coordinates of every vertex
+	 * @param ids the vertices to split, reordered in place
+	 * @param M the maximum cell size
+	 * @return the root of the tree
+	 */
+	static Cell partition(int[][] pts, int[] ids, int M){
+		return partition(pts, ids, 0, ids.length, M);
+	}
+
+	/**
+	 * Splits ids[lo..hi) at the median of its wider side
+	 * @param pts the coordinates
+	 * @param ids the vertices
+	 * @param lo the first index
+	 * @param hi one past the last index
+	 * @param M the maximum cell size
+	 * @return the root of the subtree
+	 */
+	private static Cell partition(int[][] pts, int[] ids, int lo, int hi, int M){
+		Cell cell = new Cell();
+		if (hi - lo <= M){
+			cell.ids = new int[hi - lo];
+			System.arraycopy(ids, lo, cell.ids, 0, hi - lo);
+			return cell;
+		}
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = lo; i < hi; i++){
+			minX = Math.min(minX, pts[ids[i]][0]);
+			maxX = Math.max(maxX, pts[ids[i]][0]);
+			minY = Math.min(minY, pts[ids[i]][1]);
+			maxY = Math.max(maxY, pts[ids[i]][1]);
+		}
+		int axis = maxX - minX >= maxY - minY ? 0 : 1;
+		int mid = (lo + hi) >>> 1;
+		select(pts, ids, lo, hi - 1, mid, axis);
+		cell.left = partition(pts, ids, lo, mid, M);
+		cell.right = partition(pts, ids, mid, hi, M);
+		return cell;
+	}
+
+	/**
+	 * Quickselect: moves the vertex of rank k on an axis to index k, smaller ones before it
+	 * @param pts the coordinates
+	 * @param ids the vertices
+	 * @param lo the first index
+	 * @param hi the last index
+	 * @param k the rank to place
+	 * @param axis 0 for x, 1 for y
+	 */
+	private static void select(int[][] pts, int[] ids, int lo, int hi, int k, int axis){
+		while (hi > lo){
+			int pivot = pts[ids[(lo + hi) >>> 1]][axis];
+			int i = lo, j = hi;
+			while (i <= j){
+				while (pts[ids[i]][axis] < pivot) i++;
+				while (pts[ids[j]][axis] > pivot) j--;
+				if (i <= j){
+					int t = ids[i];
+					ids[i++] = ids[j];
+					ids[j--] = t;
+				}
+			}
+			if (k <= j){
+				hi = j;
+			} else if (k >= i){
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Collects the leaves of a partition tree from left to right
+	 * @param cell the root
+	 * @param leaves the list to add to
+	 */
+	static void leaves(Cell cell, List<Cell> leaves){
+		if (cell.isLeaf()){
+			leaves.add(cell);
+		} else {
+			leaves(cell.left, leaves);
+			leaves(cell.right, leaves);
+		}
+	}
+
+	/**
+	 * Stitches a partition tree whose leaves may already hold their tours, solving any that do not
+	 * @param pts the coordinates of every vertex
+	 * @param root the root of the tree
+	 * @param solver the sub-solver of leaves without a tour
+	 * @param pool the fork/join pool
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] stitch(int[][] pts, Cell root, String solver, ForkJoinPool pool){
+		int[] order = pool.invoke(new Solve(pts, root, solver));
+		int[] path = new int[order.length + 1];
+		Tour.fromOrder(order, path);
+		return path;
+	}
+
+	/**
+	 * Solves one cell on its own small graph
+	 * @param pts the coordinates of every vertex
+	 * @param ids the vertices of the cell
+	 * @param solver greedy, mst, bitonic, optimal or local (greedy improved by 2-opt)
+	 * @return the tour of the cell as a cyclic order of vertex ids
+	 */
+	static int[] solveCell(int[][] pts, int[] ids, String solver){
+		int n = ids.length;
+		if (n <= 3) return ids.clone(); //every order is optimal
+		int[][] local = new int[n][];
+		for (int i = 0; i < n; i++){
+			local[i] = pts[ids[i]];
+		}
+		int[] path = Solvers.solve(solver, new Graph(local));
+		int[] tour = new int[n];
+		for (int i = 0; i < n; i++){
+			tour[i] = ids[path[i]];
+		}
+		return tour;
+	}
+
+	/**
+	 * The euclidean distance between two vertices
+	 * @param pts the coordinates
+	 * @param u a vertex
+	 * @param v a second vertex
+	 * @return the distance
+	 */
+	static double dist(int[][] pts, int u, int v){
+		double dx = pts[u][0] - pts[v][0];
+		double dy = pts[u][1] - pts[v][1];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Stitches two cyclic tours into one by removing an edge from each and reconnecting their ends,
+	 * then repairs the two junctions with a windowed 2-opt
+	 * @param pts the coordinates
+	 * @param a the first tour
+	 * @param b the second tour
+	 * @return the stitched tour
+	 */
+	static int[] merge(int[][] pts, int[] a, int[] b){
+		int[] fa = facing(pts, a, b);
+		int[] fb = facing(pts, b, a);
+		double best = Double.POSITIVE_INFINITY;
+		int bi = 0, bj = 0;
+		boolean flip = false;
+		for (int i : fa){
+			int a1 = a[i], a2 = a[(i + 1) % a.length];
+			double da = dist(pts, a1, a2);
+			for (int j : fb){
+				int b1 = b[j], b2 = b[(j + 1) % b.length];
+				double removed = da + dist(pts, b1, b2);
+				double straight = dist(pts, a1, b1) + dist(pts, b2, a2) - removed; //a1 b1 ... b2 a2, b walked backwards
+				double crossed = dist(pts, a1, b2) + dist(pts, b1, a2) - removed; //a1 b2 ... b1 a2, b walked forwards
+				if (straight < best){
+					best = straight;
+					bi = i;
+					bj = j;
+					flip = false;
+				}
+				if (crossed < best){
+					best = crossed;
+					bi = i;
+					bj = j;
+					flip = true;
+				}
+			}
+		}
+		int n = a.length + b.length;
+		int[] tour = new int[n];
+		int p = 0;
+		for (int s = 1; s <= a.length; s++){ //a from a2 around to a1
+			tour[p++] = a[(bi + s) % a.length];
+		}
+		for (int s = 0; s < b.length; s++){
+			tour[p++] = flip ? b[(bj + 1 + s) % b.length] : b[((bj - s) % b.length + b.length) % b.length];
+		}
+		repair(pts, tour, a.length - 1);
+		repair(pts, tour, n - 1);
+		return tour;
+	}
+
+	/**
+	 * Finds the positions of a tour whose vertices lie closest to the bounding box of another tour
+	 * @param pts the coordinates
+	 * @param a the tour to pick positions from
+	 * @param b the other tour
+	 * @return up to FACING positions of a
+	 */
+	private static int[] facing(int[][] pts, int[] a, int[] b){
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int v : b){
+			minX = Math.min(minX, pts[v][0]);
+			maxX = Math.max(maxX, pts[v][0]);
+			minY = Math.min(minY, pts[v][1]);
+			maxY = Math.max(maxY, pts[v][1]);
+		}
+		int size = Math.min(FACING, a.length);
+		int[] best = new int[size];
+		double[] keys = new double[size];
+		int count = 0;
+		for (int i = 0; i < a.length; i++){
+			int x = pts[a[i]][0], y = pts[a[i]][1];
+			double dx = Math.max(0, Math.max(minX - x, x - maxX));
+			double dy = Math.max(0, Math.max(minY - y, y - maxY));
+			double key = dx * dx + dy * dy;
+			if (count == size && key >= keys[size - 1]) continue;
+			int s = count < size ? count++ : size - 1;
+			while (s > 0 && keys[s - 1] > key){ //insertion sort, the buffer is tiny
+				keys[s] = keys[s - 1];
+				best[s] = best[s - 1];
+				s--;
+			}
+			keys[s] = key;
+			best[s] = i;
+		}
+		return best;
+	}
+
+	/**
+	 * First-improvement 2-opt restricted to the positions around a junction of a cyclic tour
+	 * @param pts the coordinates
+	 * @param tour the tour, improved in place
+	 * @param junction the position before the new edge
+	 */
+	static void repair(int[][] pts, int[] tour, int junction){
+		int n = tour.length;
+		if (n < 5) return;
+		int span = Math.min(2 * WINDOW, n - 1); //the window covers span+1 consecutive positions
+		int first = ((junction - span / 2) % n + n) % n;
+		boolean improved = true;
+		int rounds = 0;
+		while (improved && rounds++ < 100){
+			improved = false;
+			for (int i = 0; i < span - 1 && !improved; i++){
+				int a = tour[(first + i) % n], b = tour[(first + i + 1) % n];
+				for (int j = i + 2; j < span; j++){
+					int c = tour[(first + j) % n], d = tour[(first + j + 1) % n];
+					if (d == a) continue;
+					double delta = dist(pts, a, c) + dist(pts, b, d) - dist(pts, a, b) - dist(pts, c, d);
+					if (delta < -1e-9){
+						for (int lo = i + 1, hi = j; lo < hi; lo++, hi--){ //reverse b..c
+							int t = tour[(first + lo) % n];
+							tour[(first + lo) % n] = tour[(first + hi) % n];
+							tour[(first + hi) % n] = t;
+						}
+						improved = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves a set of coordinates by partitioning, solving the cells in parallel and stitching
+	 * @param pts the coordinates of every vertex
+	 * @param M the maximum cell size
+	 * @param solver the sub-solver of the cells
+	 * @param pool the fork/join pool
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	public static int[] solve(int[][] pts, int M, String solver, ForkJoinPool pool){
+		int N = pts.length;
+		int[] ids = new int[N];
+		for (int i = 0; i < N; i++) ids[i] = i;
+		return stitch(pts, partition(pts, ids, M), solver, pool);
+	}
+
+	/**
+	 * The length of a closed path computed straight from coordinates
+	 * @param pts the coordinates
+	 * @param path the path
+	 * @return its length
+	 */
+	static double length(int[][] pts, int[] path){
+		double length = 0.0;
+		for (int i = 0; i + 1 < path.length; i++){
+			length += dist(pts, path[i], path[i + 1]);
+		}
+		return length;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java PartitionTSP n seed [-m cell] [-s " + Solvers.NAMES + "] [-w threads] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int M = 200;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String solver = "local";
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-m")) M = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-w")) threads = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-s")) solver = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 || M < 1 || threads < 1){
+			System.out.println("Number of vertices, cell size and threads must be greater than 0");
+			System.exit(0);
+		}
+		if (!Solvers.isKnown(solver)){
+			System.out.println("Sub-solver must be one of " + Solvers.NAMES);
+			System.exit(0);
+		}
+		if (solver.equals("optimal") && M > 10){
+			System.out.println("Cells must hold at most 10 vertices for the optimal sub-solver");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		int[][] pts = Graph.coordinates(N, seed); //no matrix, only coordinates
+		long start = System.currentTimeMillis();
+		int[] path = solve(pts, M, solver, new ForkJoinPool(threads));
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using partition: ", length(pts, path), path);
+		out.printf("Runtime for partition TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Buckets vertices into square cells over their coordinates, so the ones nearest to a point are
+ * found by searching rings of cells outwards from it. Vertices are added one at a time; queries
+ * only read the grid, so several threads may query it once it is filled. Vertices are ranked by
+ * straight-line distance on the coordinates, which matches the euclidean metrics and approximates
+ * the others.
+ */
+public class PointGrid {
+	private int[][] pts; //the coordinates of every vertex
+	private int minX; //the smallest x coordinate
+	private int minY; //the smallest y coordinate
+	private double cell; //the width of a cell
+	private int cols; //the number of cell columns
+	private int rows; //the number of cell rows
+	private int[] head; //the first vertex of each cell, -1 if empty
+	private int[] link; //the next vertex of the same cell, -1 at the end
+	private int count; //the number of vertices added
+
+	/**
+	 * Constructor for an empty grid over the bounding box of every vertex, sized for about two
+	 * vertices per cell once the expected number is added
+	 * @param pts the coordinates of every vertex
+	 * @param expected the number of vertices that will be added
+	 */
+	public PointGrid(int[][] pts, int expected){
+		this.pts = pts;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		for (int[] p : pts){
+			minX = Math.min(minX, p[0]);
+			minY = Math.min(minY, p[1]);
+			maxX = Math.max(maxX, p[0]);
+			maxY = Math.max(maxY, p[1]);
+		}
+		double w = Math.max(1.0, (double) maxX - minX);
+		double h = Math.max(1.0, (double) maxY - minY);
+		this.cell = Math.max(1.0, Math.sqrt(2.0 * w * h / Math.max(1, expected)));
+		this.cols = (int) (w / cell) + 1;
+		this.rows = (int) (h / cell) + 1;
+		this.head = new int[cols * rows];
+		this.link = new int[pts.length];
+		Arrays.fill(head, -1);
+	}
+
+	/**
+	 * Adds a vertex
+	 * @param v the vertex
+	 */
+	public void add(int v){
+		int c = row(v) * cols + col(v);
+		link[v] = head[c];
+		head[c] = v;
+		count++;
+	}
+
+	/**
+	 * Finds the added vertices nearest to a vertex, searching outwards until no unsearched cell can
+	 * hold a nearer one. The vertex itself is among them if it was added.
+	 * @param v the vertex
+	 * @param k the number wanted
+	 * @param out receives them, nearest first, at least k entries
+	 * @param dist the caller's scratch space for their squared distances, at least k entries
+	 * @return the number found, k unless fewer were added
+	 */
+	public int nearest(int v, int k, int[] out, double[] dist){
+		k = Math.min(k, count);
+		if (k == 0) return 0;
+		int found = 0;
+		int cx = col(v);
+		int cy = row(v);
+		for (int r = 0; r <= cols + rows; r++){
+			for (int y = Math.max(0, cy - r); y <= Math.min(rows - 1, cy + r); y++){
+				if (y == cy - r || y == cy + r){ //the top and bottom rows of the ring are searched whole
+					for (int x = Math.max(0, cx - r); x <= Math.min(cols - 1, cx + r); x++){
+						found = scan(y * cols + x, v, found, k, out, dist);
+					}
+					continue;
+				}
+				if (cx - r >= 0) found = scan(y * cols + cx - r, v, found, k, out, dist);
+				if (cx + r < cols) found = scan(y * cols + cx + r, v, found, k, out, dist);
+			}
+			double reach = r * cell; //every cell of the next ring is at least this far away
+			if (found == k && reach * reach >= dist[k - 1]) break;
+		}
+		return found;
+	}
+
+	/**
+	 * Offers every vertex of a cell as a match
+	 * @param c the cell
+	 * @param v the vertex being matched
+	 * @param found the number of matches so far
+	 * @param k the number wanted
+	 * @param out the matches
+	 * @param dist their squared distances
+	 * @return the new number of matches
+	 */
+	private int scan(int c, int v, int found, int k, int[] out, double[] dist){
+		for (int u = head[c]; u != -1; u = link[u]){
+			double dx = pts[u][0] - pts[v][0];
+			double dy = pts[u][1] - pts[v][1];
+			double d = dx * dx + dy * dy;
+			if (found == k && d >= dist[k - 1]) continue;
+			int i = found < k ? found++ : k - 1;
+			while (i > 0 && dist[i - 1] > d){ //shift the farther matches down
+				dist[i] = dist[i - 1];
+				out[i] = out[i - 1];
+				i--;
+			}
+			dist[i] = d;
+			out[i] = u;
+		}
+		return found;
+	}
+
+	/**
+	 * The column of a vertex
+	 * @param v the vertex
+	 * @return the column
+	 */
+	private int col(int v){
+		return Math.min(cols - 1, (int) ((pts[v][0] - minX) / cell));
+	}
+
+	/**
+	 * The row of a vertex
+	 * @param v the vertex
+	 * @return the row
+	 */
+	private int row(int v){
+		return Math.min(rows - 1, (int) ((pts[v][1] - minY) / cell));
+	}
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Races several solvers on one shared, read-only graph and keeps the best tour. Each entry is a
+ * construction, optionally followed by 2-opt, running on its own thread. The race ends when every
+ * entry has finished, when the deadline passes or when a tour reaches the target length, and the
+ * entries still running are cancelled. 2-opt stops at the interrupt; a construction cannot be
+ * interrupted, so its thread is abandoned and its result ignored.
+ */
+public class PortfolioTSP {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int MAX_OPTIMAL = 11; //the largest graph the permutation solver is raced on
+
+	private Graph graph; //the shared, read-only graph
+	private int[][] neighbors; //the candidate lists of the 2-opt stages, built once for all of them
+	private List<Entry> entries; //the entries of the last race, in the order they were given
+
+	/**
+	 * One solver of the portfolio and its outcome
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	public static class Entry {
+		private String name; //the solver name, e.g. greedy or greedy+2opt
+		private int[] path; //the tour it found, or null
+		private double length = Double.POSITIVE_INFINITY; //its length
+		private long millis; //how long it ran
+		private String status = "cancelled"; //done, cancelled, skipped or the failure
+
+		/**
+		 * Constructor for an entry
+		 * @param name the solver name
+		 */
+		public Entry(String name){
+			this.name = name;
+		}
+
+		@Override
+		public String toString(){ //the line printed for the entry
+			if (path == null) return name + ": " + status;
+			return name + ": " + df.format(length) + " in " + millis + " milliseconds";
+		}
+	}
+
+	/**
+	 * Constructor for the portfolio
+	 * @param graph the graph every solver shares
+	 */
+	public PortfolioTSP(Graph graph){
+		this.graph = graph;
+	}
+
+	/**
+	 * Races the solvers
+	 * @param names the solvers, each one of Solvers.NAMES with an optional +2opt stage
+	 * @param budget the deadline in milliseconds from now
+	 * @param target the length at which the race stops early, 0 for none
+	 * @return the best tour, or null if no solver finished in time
+	 */
+	public Tour solve(List<String> names, long budget, double target) throws InterruptedException{
+		long deadline = System.currentTimeMillis() + budget;
+		entries = new ArrayList<Entry>();
+		ExecutorService pool = Executors.newFixedThreadPool(names.size(), task -> {
+			Thread thread = new Thread(task, "portfolio");
+			thread.setDaemon(true); //an uninterruptible loser must not keep the JVM alive
+			return thread;
+		});
+		CompletionService<Entry> race = new ExecutorCompletionService<Entry>(pool);
+		List<Future<Entry>> futures = new ArrayList<Future<Entry>>();
+		int left = 0;
+		for (String name : names){ //futures[i] runs entries[i], null if the entry was skipped
+			Entry entry = new Entry(name);
+			entries.add(entry);
+			String solver = name.endsWith("+2opt") ? name.substring(0, name.length() - 5) : name;
+			if (solver.equals("optimal") && graph.getN() > MAX_OPTIMAL){
+				entry.status = "skipped";
+				futures.add(null);
+				continue;
+			}
+			if (name.endsWith("+2opt") && neighbors == null) neighbors = CandidateLists.spatial(graph, 10);
+			futures.add(race.submit(() -> run(name, solver, name.endsWith("+2opt"))));
+			left++;
+		}
+		Tour best = null;
+		try {
+			for (; left > 0; left--){
+				Future<Entry> next = race.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				if (next == null) break; //the deadline passed
+				int i = futures.indexOf(next);
+				Entry done;
+				try {
+					done = next.get();
+				} catch (ExecutionException e){
+					entries.get(i).status = "failed: " + e.getCause();
+					continue;
+				}
+				entries.set(i, done); //losers still running never touch the entries that get printed
+				if (done.path != null && (best == null || done.length < best.getLength())){
+					best = new Tour(done.path, done.length);
+				}
+				if (best != null && best.getLength() <= target) break;
+			}
+		} finally {
+			for (Future<Entry> future : futures){
+				if (future != null) future.cancel(true);
+			}
+			pool.shutdownNow();
+		}
+		return best;
+	}
+
+	/**
+	 * Runs one entry, recording its tour, timing and status in a new Entry
+	 * @param name the entry's name
+	 * @param solver the construction
+	 * @param improve true to follow it with 2-opt
+	 * @return the outcome
+	 */
+	private Entry run(String name, String solver, boolean improve){
+		Entry entry = new Entry(name);
+		long start = System.currentTimeMillis();
+		try {
+			int[] path = Solvers.solve(solver, graph);
+			double length = improve ? new TwoOpt(graph, neighbors).improve(path) : graph.tourLength(path);
+			if (Thread.currentThread().isInterrupted()) return entry; //cancelled, the 2-opt result may be partial
+			entry.millis = System.currentTimeMillis() - start;
+			entry.length = length;
+			entry.status = "done";
+			entry.path = path;
+		} catch (RuntimeException e){
+			entry.status = "failed: " + e;
+		}
+		return entry;
+	}
+
+	/**
+	 * Gets the entries of the last race with their timings
+	 * @return the entries, in the order they were given
+	 */
+	public List<Entry> getEntries(){
+		return entries;
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java PortfolioTSP n seed [-s greedy,mst,bitonic,...] [-i] [-t millis] [-target length]"
+					+ " [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.out.println("Solvers: " + Solvers.NAMES + ", each optionally followed by +2opt; -i adds 2-opt to all of them");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		long budget = 10000;
+		double target = 0.0;
+		String list = "greedy,mst,bitonic";
+		boolean improve = false;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i < args.length; i++){
+				if (args[i].equals("-i")) improve = true;
+				if (i + 1 >= args.length) continue;
+				if (args[i].equals("-t")) budget = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-target")) target = Double.parseDouble(args[i + 1]);
+				if (args[i].equals("-s")) list = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		List<String> names = new ArrayList<String>();
+		for (String name : list.split(",")){
+			if (improve && !name.endsWith("+2opt")) name += "+2opt";
+			if (!Solvers.isKnown(name.replace("+2opt", ""))){
+				System.out.println("Solvers must be among " + Solvers.NAMES);
+				System.exit(0);
+			}
+			names.add(name);
+		}
+		if (N < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices must be greater than 0");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		PortfolioTSP portfolio = new PortfolioTSP(graph);
+		Tour best = portfolio.solve(names, budget, target);
+		long end = System.currentTimeMillis();
+		if (best == null){
+			out.printf("No solver finished within %d milliseconds\n", budget);
+		} else {
+			out.writeTour("Distance using portfolio: ", best.getLength(), best.getPath());
+		}
+		for (Entry entry : portfolio.getEntries()){
+			out.printf("  %s\n", entry);
+		}
+		out.printf("Runtime for portfolio TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
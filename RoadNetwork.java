@@ -0,0 +1,479 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A sparse road network whose travel costs are shortest paths. The roads are kept in compressed
+ * adjacency arrays, like the multigraph of ChristofidesTSP, so a network of millions of nodes costs a
+ * few arrays instead of an N by N matrix. A distance is found when it is first asked for with a
+ * bidirectional Dijkstra search, which grows one search out of each end and stops once the two
+ * frontiers can no longer improve the best meeting point. Each thread searches with its own reused
+ * arrays and heaps, so searches run in parallel and allocate nothing.
+ *
+ * Answers are kept in a bounded cache of primitive arrays. The cache is split into sets of WAYS
+ * pairs, a pair can only live in the set its hash picks, and each set keeps its pairs most recently
+ * used first, so a full set drops its least recently used pair. Sets are guarded by a fixed number
+ * of locks, so threads working on different pairs rarely wait for each other.
+ * Roads are two way, so every distance is symmetric like the other graphs.
+ */
+public class RoadNetwork {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int WAYS = 4; //the pairs of one cache set
+	private static final int LOCKS = 256; //the locks shared by the cache sets, a power of 2
+	public static final int CACHE = 1 << 22; //the default number of cached pairs
+
+	private int n; //the number of nodes
+	private int[][] coordinates; //the x,y location of every node
+	private int[] start; //where the roads of each node begin in target and weight, n+1 entries
+	private int[] target; //the far node of every road, stored once from each end
+	private double[] weight; //the travel cost of every road
+	private long[] keys; //the packed node pair of every cache slot, smaller node high, 0 if empty
+	private double[] values; //the distance of every cache slot
+	private int mask; //the number of cache sets minus one
+	private Object[] locks; //the locks of the cache sets, by set mod LOCKS
+	private ThreadLocal<Search> searches; //the reused search arrays of each thread
+	private LongAdder queries; //the distances asked for
+	private LongAdder misses; //the distances that needed a search
+
+	/**
+	 * Private helper class holding the arrays of one thread's searches. Instead of clearing the
+	 * distances before each search, every node records the search that last reached it.
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private class Search {
+		private double[][] dist = new double[2][n]; //the tentative distance of each node from either end
+		private int[][] seen = new int[2][n]; //the search that last set each distance
+		private IndexMinPQ[] pq = {new IndexMinPQ(n), new IndexMinPQ(n)}; //the frontier of either end
+		private int stamp; //the number of the current search
+	}
+
+	/**
+	 * Constructor for a road network
+	 * @param coordinates the x,y location of every node
+	 * @param from the first node of every road
+	 * @param to the second node of every road
+	 * @param cost the travel cost of every road, never negative
+	 * @param cache the number of distances to keep, at least WAYS
+	 */
+	public RoadNetwork(int[][] coordinates, int[] from, int[] to, double[] cost, int cache){
+		this.n = coordinates.length;
+		this.coordinates = coordinates;
+		this.start = new int[n + 1];
+		this.target = new int[2 * from.length];
+		this.weight = new double[2 * from.length];
+		for (int e = 0; e < from.length; e++){
+			if (from[e] < 0 || from[e] >= n || to[e] < 0 || to[e] >= n){
+				throw new IllegalArgumentException("Road " + from[e] + "-" + to[e] + " leaves the " + n + " nodes");
+			}
+			if (cost[e] < 0) throw new IllegalArgumentException("Road " + from[e] + "-" + to[e] + " has a negative cost");
+			start[from[e] + 1]++;
+			start[to[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++){
+			start[v + 1] += start[v];
+		}
+		int[] next = new int[n]; //the next free slot of each node while filling
+		System.arraycopy(start, 0, next, 0, n);
+		for (int e = 0; e < from.length; e++){
+			target[next[from[e]]] = to[e];
+			weight[next[from[e]]++] = cost[e];
+			target[next[to[e]]] = from[e];
+			weight[next[to[e]]++] = cost[e];
+		}
+		int sets = Integer.highestOneBit(Math.max(1, cache / WAYS));
+		this.mask = sets - 1;
+		this.keys = new long[sets * WAYS];
+		this.values = new double[sets * WAYS];
+		this.locks = new Object[LOCKS];
+		for (int i = 0; i < LOCKS; i++){
+			locks[i] = new Object();
+		}
+		this.searches = ThreadLocal.withInitial(Search::new);
+		this.queries = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	/**
+	 * Generates a random road network: a jittered square lattice in which every node has a road to
+	 * its right neighbor, each vertical road exists with probability one half except along the
+	 * first column, which keeps the network connected, and an occasional diagonal cuts a corner.
+	 * Every road costs its length times a random slowdown between 1 and 1.5, so the straight-line
+	 * distance between two nodes never exceeds their travel cost.
+	 * @param nodes the number of nodes
+	 * @param extent the width and height of the area the nodes are spread over
+	 * @param seed the seed of the random layout
+	 * @param cache the number of distances to keep
+	 * @return the network
+	 */
+	public static RoadNetwork random(int nodes, int extent, long seed, int cache){
+		Random random = new Random(seed);
+		int side = (int) Math.ceil(Math.sqrt(nodes));
+		double spacing = Math.max(1.0, (double) extent / side);
+		int[][] pts = new int[nodes][2];
+		for (int v = 0; v < nodes; v++){
+			pts[v][0] = (int) ((v % side + 0.5 + 0.5 * (random.nextDouble() - 0.5)) * spacing);
+			pts[v][1] = (int) ((v / side + 0.5 + 0.5 * (random.nextDouble() - 0.5)) * spacing);
+		}
+		int[] from = new int[3 * nodes];
+		int[] to = new int[3 * nodes];
+		int roads = 0;
+		for (int v = 0; v < nodes; v++){
+			int x = v % side;
+			int right = v + 1;
+			int down = v + side;
+			if (x + 1 < side && right < nodes){
+				from[roads] = v;
+				to[roads++] = right;
+			}
+			if (down < nodes && (x == 0 || random.nextBoolean())){
+				from[roads] = v;
+				to[roads++] = down;
+			}
+			if (down + 1 < nodes && x + 1 < side && random.nextInt(8) == 0){
+				from[roads] = v;
+				to[roads++] = down + 1;
+			}
+		}
+		double[] cost = new double[roads];
+		for (int e = 0; e < roads; e++){
+			cost[e] = DistanceMetric.EUCLIDEAN.distance(pts[from[e]], pts[to[e]]) * (1.0 + 0.5 * random.nextDouble());
+		}
+		return new RoadNetwork(pts, Arrays.copyOf(from, roads), Arrays.copyOf(to, roads), cost, cache);
+	}
+
+	/**
+	 * Reads a road network from a text file. The first line holds the number of nodes and roads,
+	 * then one line per node holds its x and y coordinates, then one line per road holds its two
+	 * nodes, numbered from 0, and its travel cost.
+	 * @param file the file name
+	 * @param cache the number of distances to keep
+	 * @return the network
+	 * @throws IOException if the file cannot be read
+	 */
+	public static RoadNetwork read(String file, int cache) throws IOException{
+		try (BufferedReader in = new BufferedReader(new FileReader(file))){
+			String[] tokens = fields(in, 2);
+			int nodes = Integer.parseInt(tokens[0]);
+			int roads = Integer.parseInt(tokens[1]);
+			if (nodes < 0 || roads < 0) throw new IllegalArgumentException("The node and road counts must not be negative");
+			int[][] pts = new int[nodes][2];
+			for (int v = 0; v < nodes; v++){
+				tokens = fields(in, 2);
+				pts[v][0] = Integer.parseInt(tokens[0]);
+				pts[v][1] = Integer.parseInt(tokens[1]);
+			}
+			int[] from = new int[roads];
+			int[] to = new int[roads];
+			double[] cost = new double[roads];
+			for (int e = 0; e < roads; e++){
+				tokens = fields(in, 3);
+				from[e] = Integer.parseInt(tokens[0]);
+				to[e] = Integer.parseInt(tokens[1]);
+				cost[e] = Double.parseDouble(tokens[2]);
+			}
+			return new RoadNetwork(pts, from, to, cost, cache);
+		}
+	}
+
+	/**
+	 * Reads the next line of a network file
+	 * @param in the file
+	 * @param count the number of fields the line must have
+	 * @return the fields of the line
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String[] fields(BufferedReader in, int count) throws IOException{
+		String line = in.readLine();
+		if (line == null) throw new IllegalArgumentException("The file ends early");
+		String[] tokens = line.trim().split("\\s+");
+		if (tokens.length < count) throw new IllegalArgumentException("Expected " + count + " fields in \"" + line + "\"");
+		return tokens;
+	}
+
+	/**
+	 * Builds the network named by the command line flags -road [file] and -cache pairs. Without a
+	 * file, a random network with four nodes per vertex is generated over the same area as the
+	 * random coordinates of Graph. A bad cache size or network file is reported and ends the program,
+	 * like the bad numbers checked by every main.
+	 * @param N the number of vertices
+	 * @param seed the seed of the random network
+	 * @param args the command line arguments
+	 * @return the network, or null if -road was not given
+	 * @throws IOException if the file cannot be read
+	 */
+	public static RoadNetwork fromArgs(int N, long seed, String[] args) throws IOException{
+		boolean road = false;
+		String file = null;
+		int cache = CACHE;
+		for (int i = 2; i < args.length; i++){
+			if (args[i].equals("-road")){
+				road = true;
+				if (i + 1 < args.length && !args[i + 1].startsWith("-")) file = args[i + 1];
+			}
+			if (args[i].equals("-cache") && i + 1 < args.length){
+				try {
+					cache = Integer.parseInt(args[i + 1]);
+				} catch(NumberFormatException e){
+					System.out.println("Command line args must be integers");
+					System.exit(0);
+				}
+			}
+		}
+		if (!road) return null;
+		if (file == null) return random(4 * N, N, seed, cache);
+		try {
+			return read(file, cache);
+		} catch(IllegalArgumentException e){ //also the NumberFormatException of a bad field
+			System.out.println("Bad road network " + file + ": " + e.getMessage());
+			System.exit(0);
+			return null;
+		}
+	}
+
+	/**
+	 * Picks distinct nodes at random to be the vertices of a tour
+	 * @param count the number of nodes to pick
+	 * @param seed the seed of the choice
+	 * @return the picked nodes, in the order they were picked
+	 * @throws IllegalArgumentException if the network has too few nodes or the picked ones are not
+	 * all connected, as a tour through them would have an infinite length
+	 */
+	public int[] stops(int count, long seed){
+		if (count > n) throw new IllegalArgumentException("The network has only " + n + " nodes, " + count + " are needed");
+		int[] nodes = new int[n];
+		for (int v = 0; v < n; v++){
+			nodes[v] = v;
+		}
+		Random random = new Random(seed);
+		for (int i = 0; i < count; i++){ //a partial Fisher-Yates shuffle
+			int j = i + random.nextInt(n - i);
+			int temp = nodes[i];
+			nodes[i] = nodes[j];
+			nodes[j] = temp;
+		}
+		int[] stops = Arrays.copyOf(nodes, count);
+		boolean[] reached = component(count > 0 ? stops[0] : 0);
+		for (int stop : stops){
+			if (!reached[stop]) throw new IllegalArgumentException("Node " + stop + " cannot be reached from node " + stops[0]);
+		}
+		return stops;
+	}
+
+	/**
+	 * Picks the stops of a tour asked for on the command line. A network that cannot hold the tour
+	 * is reported and ends the program, like fromArgs does for a bad network.
+	 * @param count the number of nodes to pick
+	 * @param seed the seed of the choice
+	 * @return the picked nodes, in the order they were picked
+	 */
+	public int[] stopsFromArgs(int count, long seed){
+		try {
+			return stops(count, seed);
+		} catch(IllegalArgumentException e){
+			System.out.println(e.getMessage());
+			System.exit(0);
+			return null;
+		}
+	}
+
+	/**
+	 * Finds every node connected to a node, ignoring the road costs
+	 * @param source the node
+	 * @return for each node, true if there is a path to it from source
+	 */
+	private boolean[] component(int source){
+		boolean[] reached = new boolean[n];
+		if (n == 0) return reached;
+		int[] stack = new int[n];
+		int top = 0;
+		stack[top++] = source;
+		reached[source] = true;
+		while (top > 0){
+			int u = stack[--top];
+			for (int e = start[u]; e < start[u + 1]; e++){
+				if (!reached[target[e]]){
+					reached[target[e]] = true;
+					stack[top++] = target[e];
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * Finds the travel cost between two nodes, from the cache if it was asked for recently
+	 * @param a a node
+	 * @param b another node
+	 * @return the length of the shortest path, infinite if there is none
+	 */
+	public double distance(int a, int b){
+		queries.increment();
+		if (a == b) return 0.0;
+		long key = a < b ? ((long) a << 32) | b : ((long) b << 32) | a; //never 0, as the larger node is not
+		int set = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		int first = set * WAYS;
+		synchronized (locks[set & (LOCKS - 1)]){
+			for (int slot = first; slot < first + WAYS && keys[slot] != 0; slot++){
+				if (keys[slot] == key){
+					double d = values[slot];
+					promote(first, slot, key, d);
+					return d;
+				}
+			}
+		}
+		misses.increment();
+		double d = search(Math.min(a, b), Math.max(a, b)); //one direction, so both round the same way
+		synchronized (locks[set & (LOCKS - 1)]){
+			int slot = first;
+			while (slot < first + WAYS - 1 && keys[slot] != 0 && keys[slot] != key) slot++; //the pair itself, the first free slot or the least recent one
+			promote(first, slot, key, d);
+		}
+		return d;
+	}
+
+	/**
+	 * Moves a pair to the front of its cache set, shifting the pairs ahead of its slot back by one
+	 * @param first the first slot of the set
+	 * @param slot the slot the pair leaves, which is overwritten
+	 * @param key the packed pair
+	 * @param d its distance
+	 */
+	private void promote(int first, int slot, long key, double d){
+		System.arraycopy(keys, first, keys, first + 1, slot - first);
+		System.arraycopy(values, first, values, first + 1, slot - first);
+		keys[first] = key;
+		values[first] = d;
+	}
+
+	/**
+	 * Searches from both nodes at once, always growing the smaller frontier. Every road relaxed into
+	 * a node the other search has reached offers a path through it; once the nearest nodes of the
+	 * two frontiers are together no nearer than the best such path, no shorter one is left.
+	 * @param a a node
+	 * @param b another node
+	 * @return the length of the shortest path, infinite if there is none
+	 */
+	private double search(int a, int b){
+		Search s = searches.get();
+		if (s.stamp == Integer.MAX_VALUE){ //the stamps wrapped, so the old marks are cleared once
+			Arrays.fill(s.seen[0], 0);
+			Arrays.fill(s.seen[1], 0);
+			s.stamp = 0;
+		}
+		int stamp = ++s.stamp;
+		int[] ends = {a, b};
+		for (int side = 0; side < 2; side++){
+			s.dist[side][ends[side]] = 0.0;
+			s.seen[side][ends[side]] = stamp;
+			s.pq[side].insert(ends[side], 0.0);
+		}
+		double best = Double.POSITIVE_INFINITY;
+		while (!s.pq[0].isEmpty() && !s.pq[1].isEmpty()){
+			if (s.pq[0].getKey(s.pq[0].minIndex()) + s.pq[1].getKey(s.pq[1].minIndex()) >= best) break;
+			int side = s.pq[0].size() <= s.pq[1].size() ? 0 : 1;
+			IndexMinPQ pq = s.pq[side];
+			double[] dist = s.dist[side];
+			int[] seen = s.seen[side];
+			double[] other = s.dist[1 - side];
+			int[] reached = s.seen[1 - side];
+			int u = pq.delMin();
+			for (int e = start[u]; e < start[u + 1]; e++){
+				int v = target[e];
+				double d = dist[u] + weight[e];
+				if (seen[v] != stamp){
+					seen[v] = stamp;
+					dist[v] = d;
+					pq.insert(v, d);
+				} else if (d < dist[v]){ //a settled node is never beaten, so v is still queued
+					dist[v] = d;
+					pq.change(v, d);
+				} else {
+					continue;
+				}
+				if (reached[v] == stamp && d + other[v] < best) best = d + other[v];
+			}
+		}
+		s.pq[0].clear();
+		s.pq[1].clear();
+		return best;
+	}
+
+	/**
+	 * Publicly accessible method which returns the number of nodes
+	 * @return the number of nodes
+	 */
+	public int getN(){
+		return n;
+	}
+
+	/**
+	 * Publicly accessible method which returns the location of a node
+	 * @param v the node
+	 * @return its x,y pair
+	 */
+	public int[] getCoordinates(int v){
+		return coordinates[v];
+	}
+
+	/**
+	 * Gets the number of distances asked for so far
+	 * @return the count
+	 */
+	public long getQueries(){
+		return queries.sum();
+	}
+
+	/**
+	 * Gets the number of distances that were not in the cache and needed a search
+	 * @return the count
+	 */
+	public long getMisses(){
+		return misses.sum();
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java RoadNetwork n seed [-s " + Solvers.NAMES + "] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		String solver = "savings"; //greedy and mst read every weight, which here means every shortest path
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-s")) solver = args[i + 1];
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices must be greater than 0");
+			System.exit(0);
+		}
+		if (!Solvers.isKnown(solver)){
+			System.out.println("Solver must be one of " + Solvers.NAMES);
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		RoadNetwork road = fromArgs(N, seed, args);
+		if (road == null) road = random(4 * N, N, seed, CACHE); //this class always tours a road network
+		long start = System.currentTimeMillis();
+		Graph graph = new Graph(road, road.stopsFromArgs(N, seed));
+		int[] path = Solvers.solve(solver, graph);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using " + solver + " on roads: ", graph.tourLength(path), path);
+		out.printf("Runtime for %s road TSP   : %d milliseconds\n", solver, end - start);
+		out.printf("Shortest paths: %d asked for, %d searched, %s%% from the cache\n\n", road.getQueries(), road.getMisses(),
+				df.format(100.0 * (road.getQueries() - road.getMisses()) / Math.max(1, road.getQueries())));
+		out.close();
+	}
+}
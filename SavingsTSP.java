@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The Clarke-Wright savings construction with vertex 0 as the hub. Every other vertex starts on its
+ * own route out of the hub and back, and joining two routes at the ends i and j saves
+ * d(0,i) + d(0,j) - d(i,j). Savings are only computed for each vertex's nearest vertices, found with
+ * a PointGrid, and sorted as packed longs; routes are joined with a degree array and a union-find
+ * over plain int arrays, like the edge selection of GreedyTSP. If routes are left when the pairs run
+ * out, another round looks at the nearest route ends only, widening the search until one route
+ * remains, which the hub closes into the tour.
+ */
+public class SavingsTSP {
+	private static final int K = 10; //the nearest vertices each vertex computes savings with
+
+	private Graph graph; //the graph being toured
+	private int[] degree; //the number of route edges at each vertex, at most 2
+	private int[] adj; //the route neighbors of each vertex, two slots per vertex, -1 if free
+	private int[] parent; //the union-find forest of the routes
+	private int[] rank; //the rank of each union-find root
+	private int routes; //the number of routes left
+
+	/**
+	 * Constructor for the savings engine, which starts with one route per vertex other than the hub
+	 * @param graph the graph, which is left untouched
+	 */
+	private SavingsTSP(Graph graph){
+		int N = graph.getN();
+		this.graph = graph;
+		this.degree = new int[N];
+		this.adj = new int[2 * N];
+		this.parent = new int[N];
+		this.rank = new int[N];
+		this.routes = N - 1;
+		Arrays.fill(adj, -1);
+		for (int v = 0; v < N; v++){
+			parent[v] = v;
+		}
+	}
+
+	/**
+	 * Builds the savings tour with the default number of candidates
+	 * @param graph the graph, which is left untouched
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph){
+		return tour(graph, K);
+	}
+
+	/**
+	 * Builds the savings tour
+	 * @param graph the graph, which is left untouched
+	 * @param k the nearest vertices each vertex computes savings with in the first round
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	static int[] tour(Graph graph, int k){
+		int N = graph.getN();
+		SavingsTSP engine = new SavingsTSP(graph);
+		int[] active = new int[Math.max(0, N - 1)]; //the vertices that can still take a route edge
+		for (int v = 1; v < N; v++){
+			active[v - 1] = v;
+		}
+		while (engine.routes > 1){
+			if (engine.round(active, Math.min(k, active.length - 1)) == 0) k *= 2; //no pair was joinable, look farther
+			int count = 0;
+			for (int v : active){
+				if (engine.degree[v] < 2) active[count++] = v;
+			}
+			active = Arrays.copyOf(active, count);
+		}
+		return engine.path();
+	}
+
+	/**
+	 * Joins routes along the savings of each active vertex with its nearest active vertices, largest
+	 * saving first
+	 * @param active the route ends and lone vertices
+	 * @param k the number of nearest vertices per active vertex
+	 * @return the number of joins made
+	 */
+	private int round(int[] active, int k){
+		int[][] pts = graph.getVertices();
+		PointGrid grid = new PointGrid(pts, active.length);
+		for (int v : active){
+			grid.add(v);
+		}
+		int[] candidates = new int[active.length * k]; //slot a*k+j holds the j-th neighbor of active[a], -1 if none
+		long[] keys = new long[active.length * k]; //the packed saving and slot of every pair
+		int pairs = 0;
+		int[] found = new int[k + 1];
+		double[] dist = new double[k + 1];
+		for (int a = 0; a < active.length; a++){
+			int v = active[a];
+			int n = grid.nearest(v, k + 1, found, dist);
+			for (int j = 0, slot = a * k; j < n && slot < (a + 1) * k; j++){
+				if (found[j] == v) continue;
+				int u = found[j];
+				candidates[slot] = u;
+				double saving = graph.getWeight(0, v) + graph.getWeight(0, u) - graph.getWeight(v, u);
+				keys[pairs++] = ((long) sortable((float) -saving) << 32) | slot++; //ascending order is largest saving first
+			}
+		}
+		Arrays.parallelSort(keys, 0, pairs);
+		int joins = 0;
+		for (int p = 0; p < pairs && routes > 1; p++){
+			int slot = (int) keys[p];
+			int v = active[slot / k];
+			int u = candidates[slot];
+			if (degree[v] == 2 || degree[u] == 2) continue; //not a route end any more
+			int rv = find(v);
+			int ru = find(u);
+			if (rv == ru) continue; //both ends of the same route
+			union(rv, ru);
+			adj[2 * v + degree[v]++] = u;
+			adj[2 * u + degree[u]++] = v;
+			routes--;
+			joins++;
+		}
+		return joins;
+	}
+
+	/**
+	 * Maps a float to an int with the same order, so savings can be compared as the high half of a long
+	 * @param f the float
+	 * @return the ordered int
+	 */
+	private static int sortable(float f){
+		int bits = Float.floatToIntBits(f);
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	/**
+	 * Finds the route of a vertex, halving the path on the way
+	 * @param v the vertex
+	 * @return the root
+	 */
+	private int find(int v){
+		while (parent[v] != v){
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	/**
+	 * Combines two routes by rank
+	 * @param i the root of one route
+	 * @param j the root of the other
+	 */
+	private void union(int i, int j){
+		if (rank[i] > rank[j]){
+			parent[j] = i;
+		} else {
+			parent[i] = j;
+			if (rank[i] == rank[j]) rank[j]++;
+		}
+	}
+
+	/**
+	 * Closes the last route through the hub
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	private int[] path(){
+		int N = graph.getN();
+		int[] path = new int[N + 1];
+		int cur = 1;
+		while (cur < N && degree[cur] == 2) cur++; //an end of the route
+		for (int i = 1, prev = -1; i < N; i++){
+			path[i] = cur;
+			int next = adj[2 * cur] != -1 && adj[2 * cur] != prev ? adj[2 * cur] : adj[2 * cur + 1];
+			prev = cur;
+			cur = next;
+		}
+		return path;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java SavingsTSP n seed [-k neighbors] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int k = K;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-k")) k = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 1 || k < 1){ //the check to see if the number of vertices is not below 1
+			System.out.println("Number of vertices and neighbors must be greater than 0");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		long start = System.currentTimeMillis();
+		int[] path = tour(graph, k);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using savings: ", graph.tourLength(path), path);
+		out.printf("Runtime for savings TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
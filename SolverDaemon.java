@@ -0,0 +1,387 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A resident solver that answers many requests from one warm JVM. Requests arrive one per line on
+ * stdin, or on any number of connections to a local TCP port:
+ *
+ *     id solver random n seed
+ *     id solver points n x1 y1 ... xn yn
+ *
+ * and each answer is streamed back as soon as it is ready, as "id distance v0 v1 ... v0" or
+ * "id error message". Small requests are grouped into batches that run on one pool thread each,
+ * so a burst of tiny instances costs a handful of task hand-offs instead of one per request.
+ *
+ * Small instances get a dense matrix of at most SMALL^2 weights. Larger ones get an implicit graph,
+ * so no N^2 matrix is ever stored for them, but greedy, mst and bitonic still build N^2 tables of
+ * their own. Each large request therefore reserves an estimate of that memory from a fixed budget
+ * before it is solved and waits while the budget is taken, so concurrent large requests cannot
+ * exhaust the heap; a request that could never fit is refused when it is read.
+ */
+public class SolverDaemon {
+	private static final int SMALL = 200; //requests of at most this many vertices are batched
+	private static final int MAX_OPTIMAL = 11; //the largest instance the permutation solver is allowed
+	private static final int MAX_N = 10000; //the largest instance
+	private static final Request STOP = new Request(null, null, null, null); //tells the dispatcher to drain and exit
+
+	private ExecutorService pool; //solves the batches
+	private LinkedBlockingQueue<Request> queue; //the requests not yet handed to the pool
+	private int batchSize; //the most requests in one batch
+	private long linger; //how long a batch waits for company, in nanoseconds
+	private int budget; //the megabytes the large requests in flight may use together
+	private Semaphore memory; //the megabytes of the budget not yet reserved
+
+	/**
+	 * One solve request and where its answer goes
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private static class Request {
+		private String id; //the caller's tag, echoed in the answer
+		private String solver; //the solver name
+		private int[][] pts; //the coordinates
+		private Client client; //the connection to answer on
+
+		/**
+		 * Constructor for a request
+		 * @param id the caller's tag
+		 * @param solver the solver name
+		 * @param pts the coordinates
+		 * @param client the connection to answer on
+		 */
+		public Request(String id, String solver, int[][] pts, Client client){
+			this.id = id;
+			this.solver = solver;
+			this.pts = pts;
+			this.client = client;
+		}
+	}
+
+	/**
+	 * A source of requests. Answers are written under its lock, and the stream is closed once the
+	 * input has ended and every request read from it has been answered.
+	 * @author Dyangelo Grullon (dag4202)
+	 */
+	private static class Client {
+		private DecimalFormat df = new DecimalFormat("0.00"); //only used under the lock
+		private Writer out; //the answers
+		private Closeable resource; //closed when the client is done
+		private int pending; //requests read but not answered
+		private boolean ended; //true once the input has ended
+		private boolean broken; //true if writing failed, answers are then dropped
+
+		/**
+		 * Constructor for a client
+		 * @param out the stream the answers go to
+		 * @param resource the resource to close when done
+		 */
+		public Client(Writer out, Closeable resource){
+			this.out = out;
+			this.resource = resource;
+		}
+
+		/**
+		 * Counts a request that will be answered later
+		 */
+		public synchronized void expect(){
+			pending++;
+		}
+
+		/**
+		 * Writes the answer to a counted request
+		 * @param id the request's tag
+		 * @param length the tour length
+		 * @param path the path
+		 */
+		public synchronized void answer(String id, double length, int[] path){
+			StringBuilder line = new StringBuilder(id.length() + 8 * path.length);
+			line.append(id).append(' ').append(df.format(length));
+			for (int v : path){
+				line.append(' ').append(v);
+			}
+			send(line.toString());
+		}
+
+		/**
+		 * Writes an error for a counted request
+		 * @param id the request's tag
+		 * @param message the reason
+		 */
+		public synchronized void fail(String id, String message){
+			send(id + " error " + message);
+		}
+
+		/**
+		 * Writes one line and closes the client if it was the last answer owed
+		 * @param line the line
+		 */
+		private void send(String line){
+			try {
+				if (!broken){
+					out.write(line);
+					out.write('\n');
+					out.flush();
+				}
+			} catch (IOException e){
+				broken = true; //the caller went away, the remaining answers have nowhere to go
+			}
+			if (--pending == 0 && ended) close();
+		}
+
+		/**
+		 * Marks the end of the input, closing the client once nothing is owed
+		 */
+		public synchronized void end(){
+			ended = true;
+			if (pending == 0) close();
+		}
+
+		/**
+		 * Closes the client's resource
+		 */
+		private void close(){
+			try {
+				out.flush();
+				resource.close();
+			} catch (IOException e){
+				//already gone
+			}
+		}
+	}
+
+	/**
+	 * Constructor for the daemon
+	 * @param threads the number of solver threads
+	 * @param batchSize the most small requests in one batch
+	 * @param linger how long a batch waits for more requests, in milliseconds
+	 * @param budget the megabytes the large requests in flight may use together
+	 */
+	public SolverDaemon(int threads, int batchSize, long linger, int budget){
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.queue = new LinkedBlockingQueue<Request>();
+		this.batchSize = batchSize;
+		this.linger = TimeUnit.MILLISECONDS.toNanos(linger);
+		this.budget = budget;
+		this.memory = new Semaphore(budget, true); //first come first served, so a large request is not starved
+	}
+
+	/**
+	 * Estimates the memory a solver's own tables take on an implicit graph
+	 * @param solver the solver name
+	 * @param n the number of vertices
+	 * @return the estimate in megabytes, 0 for the solvers that only need O(n)
+	 */
+	private static int megabytes(String solver, int n){
+		long cells = (long) n * n;
+		long bytes;
+		switch (solver){
+		case "greedy": case "local": bytes = 24 * cells; break; //n^2/2 edges of about 48 bytes with their references
+		case "bitonic": bytes = 12 * cells; break; //a double and an int table
+		case "mst": bytes = 8 * cells; break; //the dense matrix of the tree
+		default: bytes = 0;
+		}
+		return (int) ((bytes + (1 << 20) - 1) >> 20);
+	}
+
+	/**
+	 * Runs every solver on a few small instances so the JIT has compiled them before the first request
+	 */
+	public void warmUp(){
+		for (int i = 0; i < 200; i++){
+			Graph graph = new Graph(Graph.coordinates(8 + i % 40, i));
+			for (String solver : Solvers.NAMES.split("\\|")){
+				if (!solver.equals("optimal") || graph.getN() <= 9) Solvers.solve(solver, graph);
+			}
+		}
+	}
+
+	/**
+	 * Reads requests from a client until its input ends
+	 * @param in the request lines
+	 * @param client the client to answer
+	 */
+	public void read(BufferedReader in, Client client) throws IOException{
+		String line;
+		while ((line = in.readLine()) != null){
+			String[] tokens = line.trim().split("\\s+");
+			if (tokens[0].isEmpty()) continue;
+			client.expect();
+			try {
+				int[][] pts = parse(tokens);
+				int need = pts.length > SMALL ? megabytes(tokens[1], pts.length) : 0;
+				if (need > budget) throw new IllegalArgumentException(tokens[1] + " on " + pts.length + " vertices needs about " + need + "MB, the budget is " + budget + "MB");
+				queue.add(new Request(tokens[0], tokens[1], pts, client));
+			} catch (RuntimeException e){ //a malformed line, answered at once
+				client.fail(tokens[0], e.getMessage() == null ? e.toString() : e.getMessage());
+			}
+		}
+		client.end();
+	}
+
+	/**
+	 * Parses the instance part of a request line and checks the solver can take it
+	 * @param tokens the tokens of the line
+	 * @return the coordinates
+	 */
+	private static int[][] parse(String[] tokens){
+		if (tokens.length < 5) throw new IllegalArgumentException("expected: id solver random n seed | id solver points n x1 y1 ...");
+		int n = Integer.parseInt(tokens[3]);
+		if (n < 1 || n > MAX_N) throw new IllegalArgumentException("n must be between 1 and " + MAX_N);
+		if (tokens[1].equals("optimal") && n > MAX_OPTIMAL) throw new IllegalArgumentException("optimal takes at most " + MAX_OPTIMAL + " vertices");
+		if (!Solvers.isKnown(tokens[1])) throw new IllegalArgumentException("unknown solver, expected " + Solvers.NAMES);
+		if (tokens[2].equals("random")) return Graph.coordinates(n, Long.parseLong(tokens[4]));
+		if (!tokens[2].equals("points")) throw new IllegalArgumentException("unknown instance kind " + tokens[2]);
+		if (tokens.length != 4 + 2 * n) throw new IllegalArgumentException("expected " + n + " coordinate pairs");
+		int[][] pts = new int[n][2];
+		for (int i = 0; i < n; i++){
+			pts[i][0] = Integer.parseInt(tokens[4 + 2 * i]);
+			pts[i][1] = Integer.parseInt(tokens[5 + 2 * i]);
+		}
+		return pts;
+	}
+
+	/**
+	 * Moves requests from the queue to the pool until STOP. A small request waits up to the linger
+	 * time for others to share its batch; a large one is sent on its own.
+	 */
+	public void dispatch() throws InterruptedException{
+		List<Request> batch = new ArrayList<Request>();
+		boolean stop = false;
+		while (!stop){
+			Request request = queue.take();
+			long deadline = System.nanoTime() + linger;
+			while (true){
+				if (request == STOP){
+					stop = true;
+					break;
+				}
+				if (request.pts.length > SMALL){
+					submit(List.of(request));
+				} else {
+					batch.add(request);
+				}
+				if (batch.size() >= batchSize) break;
+				request = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (request == null) break;
+			}
+			if (!batch.isEmpty()){
+				submit(batch);
+				batch = new ArrayList<Request>();
+			}
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Solves a batch of requests on one pool thread, answering each as soon as it is done. A large
+	 * request first waits until its memory can be reserved from the budget.
+	 * @param batch the requests
+	 */
+	private void submit(List<Request> batch){
+		pool.execute(() -> {
+			for (Request request : batch){
+				boolean large = request.pts.length > SMALL;
+				int need = large ? megabytes(request.solver, request.pts.length) : 0;
+				memory.acquireUninterruptibly(need);
+				try {
+					Graph graph = large ? new Graph(request.pts, DistanceMetric.EUCLIDEAN, true) : new Graph(request.pts);
+					int[] path = Solvers.solve(request.solver, graph);
+					request.client.answer(request.id, graph.tourLength(path), path);
+				} catch (RuntimeException | Error e){ //an OutOfMemoryError or StackOverflowError must not cost the rest of the batch their answers
+					request.client.fail(request.id, e.toString());
+				} finally {
+					memory.release(need);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Accepts clients on a loopback port forever, each read on its own thread
+	 * @param port the port
+	 */
+	public void listen(int port) throws IOException{
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())){
+			System.err.println("SolverDaemon listening on port " + server.getLocalPort());
+			while (true){
+				Socket socket = server.accept();
+				Thread reader = new Thread(() -> {
+					try {
+						BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+						Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+						read(in, new Client(out, socket));
+					} catch (IOException e){
+						//the client hung up mid-request
+					}
+				}, "client-" + socket.getPort());
+				reader.setDaemon(true);
+				reader.start();
+			}
+		}
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException{
+		int port = -1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int batchSize = 32;
+		long linger = 1;
+		int budget = (int) (Runtime.getRuntime().maxMemory() / 2 >> 20); //half the heap, the rest is for the small requests and the JVM
+		boolean warm = true;
+		try { //the try catch block to check if the arguments are actually numbers
+			for (int i = 0; i < args.length; i++){
+				if (args[i].equals("-nowarm")) warm = false;
+				if (i + 1 >= args.length) continue;
+				if (args[i].equals("-port")) port = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-w")) threads = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-batch")) batchSize = Integer.parseInt(args[i + 1]);
+				if (args[i].equals("-linger")) linger = Long.parseLong(args[i + 1]);
+				if (args[i].equals("-mem")) budget = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Usage: java SolverDaemon [-port p] [-w threads] [-batch size] [-linger millis] [-mem megabytes] [-nowarm]");
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (threads < 1 || batchSize < 1 || linger < 0 || budget < 1){
+			System.out.println("Threads, batch size and memory budget must be greater than 0");
+			System.exit(0);
+		}
+		SolverDaemon daemon = new SolverDaemon(threads, batchSize, linger, budget);
+		if (warm) daemon.warmUp();
+		Thread dispatcher = new Thread(() -> {
+			try {
+				daemon.dispatch();
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}, "dispatcher");
+		dispatcher.start();
+		if (port >= 0){
+			daemon.listen(port); //runs until the process is killed
+		}
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		daemon.read(in, new Client(out, out));
+		daemon.queue.add(STOP); //answers everything already read, then exits
+		dispatcher.join();
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Looks the tour constructions up by name, so the partition, cluster and daemon modes can be told
+ * which solver to run without each of them repeating the list.
+ */
+public class Solvers {
+	/**
+	 * The names solve accepts
+	 */
+	public static final String NAMES = "greedy|mst|bitonic|farthest|cheapest|savings|christofides|optimal|local";
+
+	/**
+	 * Determines if solve accepts a name
+	 * @param name the name
+	 * @return true if it is one of NAMES
+	 */
+	public static boolean isKnown(String name){
+		return ("|" + NAMES + "|").contains("|" + name + "|");
+	}
+
+	/**
+	 * Builds a tour with the named solver. None of them modifies the graph, so several threads
+	 * may solve the same graph at once.
+	 * @param name greedy, mst, bitonic, farthest, cheapest, savings, christofides, optimal or local (greedy improved by 2-opt)
+	 * @param graph the graph
+	 * @return the path, N+1 entries starting and ending at vertex 0
+	 */
+	public static int[] solve(String name, Graph graph){
+		switch (name){
+		case "greedy": return GreedyTSP.tour(graph);
+		case "mst": return MstTSP.tour(graph);
+		case "bitonic": return BitonicTSP.tour(graph);
+		case "farthest": return InsertionTSP.farthest(graph);
+		case "cheapest": return InsertionTSP.cheapest(graph);
+		case "savings": return SavingsTSP.tour(graph);
+		case "christofides": return ChristofidesTSP.tour(graph);
+		case "optimal": return OptimalTSP.tour(graph);
+		case "local":
+			int[] path = GreedyTSP.tour(graph);
+			new TwoOpt(graph, CandidateLists.spatial(graph, 10)).improve(path);
+			return path;
+		default: throw new IllegalArgumentException("Unknown solver " + name + ", expected " + NAMES);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * An immutable tour, safe to publish between solver threads through an atomic reference
+ */
+public final class Tour {
+	private final int[] path; //N+1 entries starting and ending at vertex 0
+	private final double length; //the length of the path
+
+	/**
+	 * Constructs a tour from a copy of a path
+	 * @param path the path, N+1 entries starting and ending at the same vertex
+	 * @param length the length of the path
+	 */
+	public Tour(int[] path, double length){
+		this.path = path.clone();
+		this.length = length;
+	}
+
+	/**
+	 * Retrieves a copy of the path
+	 * @return the path, N+1 entries starting and ending at the same vertex
+	 */
+	public int[] getPath(){
+		return path.clone();
+	}
+
+	/**
+	 * Copies the path into a caller owned buffer, avoiding an allocation
+	 * @param dest an array of at least N+1 entries
+	 */
+	public void copyPath(int[] dest){
+		System.arraycopy(path, 0, dest, 0, path.length);
+	}
+
+	/**
+	 * Retrieves the length of the tour
+	 * @return the length
+	 */
+	public double getLength(){
+		return length;
+	}
+
+	/**
+	 * Turns a cyclic order of every vertex into a path that starts and ends at vertex 0
+	 * @param order the cyclic order, N entries
+	 * @param path the destination, N+1 entries
+	 */
+	public static void fromOrder(int[] order, int[] path){
+		int N = order.length;
+		int zero = 0;
+		while (order[zero] != 0) zero++;
+		for (int i = 0; i < N; i++){
+			path[i] = order[(zero + i) % N];
+		}
+		path[N] = path[0];
+	}
+}
@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * Merges several good tours of the same graph into one that is at least as short as the best of
+ * them, by partition crossover. Two tours are merged by dropping the edges they share; the rest
+ * falls apart into components where the tours differ. A component that both tours enter and leave
+ * exactly once, through the same shared edges, is a path between two fixed portals in each tour,
+ * so either tour's path can be kept there independently of every other component. Components
+ * entered more often are first fused with the ones they touch, which often leaves two entries to
+ * the union. Each such component takes the shorter of the two paths, or the optimal path between
+ * its portals when it is small enough for the dynamic program. K tours are folded in one at a time,
+ * shortest first. Every step is linear in N apart from the small components, so a merge costs
+ * about as much as reading the tours.
+ */
+public class TourMerge {
+	private static DecimalFormat df = new DecimalFormat("0.00");
+	private static final int EXACT = 12; //the largest component solved exactly between its portals
+
+	private Graph graph; //the graph the tours belong to
+	private int N; //the number of vertices
+	private int[] nextA; //the successor of each vertex in the shorter tour
+	private int[] prevA; //the predecessor of each vertex in the shorter tour
+	private int[] nextB; //the successor of each vertex in the other tour
+	private int[] prevB; //the predecessor of each vertex in the other tour
+	private int[] parent; //the union-find forest of the components
+	private boolean[] differs; //true if a vertex has an edge that only one tour uses
+	private int[] size; //the number of vertices of each component, by root
+	private int[] crossings; //the shared edges leaving each component, by root
+	private int[] portals; //the first two vertices each component is left from, two per root
+	private int[] offset; //where each replaced component's path starts in paths, by root
+	private int[] paths; //the chosen path of every replaced component, from its first portal
+	private boolean[] replaced; //true if a component takes a path other than the shorter tour's
+	private int[] order; //the cyclic order of the merged tour
+	private double[] cost; //the exact path table, 2^(EXACT-2) subsets by EXACT-2 ends
+	private byte[] back; //its back-pointers
+	private int[] exact; //the exact path of the current component
+	private int merged; //the number of components that took a different path in the last merge
+
+	/**
+	 * Constructor for the merger, which allocates its buffers once for every merge of the graph
+	 * @param graph the graph the tours belong to
+	 */
+	public TourMerge(Graph graph){
+		this.graph = graph;
+		this.N = graph.getN();
+		this.nextA = new int[N];
+		this.prevA = new int[N];
+		this.nextB = new int[N];
+		this.prevB = new int[N];
+		this.parent = new int[N];
+		this.differs = new boolean[N];
+		this.size = new int[N];
+		this.crossings = new int[N];
+		this.portals = new int[2 * N];
+		this.offset = new int[N];
+		this.paths = new int[N];
+		this.replaced = new boolean[N];
+		this.order = new int[N];
+		this.cost = new double[(1 << (EXACT - 2)) * (EXACT - 2)];
+		this.back = new byte[(1 << (EXACT - 2)) * (EXACT - 2)];
+		this.exact = new int[EXACT];
+	}
+
+	/**
+	 * Folds several tours into one, starting from the shortest
+	 * @param tours the tours, each a path of N+1 entries
+	 * @return the merged tour, no longer than any of them
+	 */
+	public Tour merge(List<Tour> tours){
+		Tour best = tours.get(0);
+		for (Tour tour : tours){
+			if (tour.getLength() < best.getLength()) best = tour;
+		}
+		for (Tour tour : tours){
+			if (tour != best) best = merge(best, tour);
+		}
+		return best;
+	}
+
+	/**
+	 * Merges two tours by partition crossover
+	 * @param first a tour
+	 * @param second another tour of the same graph
+	 * @return the merged tour, no longer than the shorter of the two
+	 */
+	public Tour merge(Tour first, Tour second){
+		Tour base = first.getLength() <= second.getLength() ? first : second;
+		Tour other = base == first ? second : first;
+		int[] a = base.getPath();
+		link(a, nextA, prevA);
+		link(other.getPath(), nextB, prevB);
+		components();
+		merged = 0;
+		int used = 0;
+		for (int r = 0; r < N; r++){
+			replaced[r] = false;
+			if (!differs[r] || parent[r] != r || crossings[r] != 2) continue; //only two-portal components can be swapped
+			offset[r] = used;
+			double kept = walk(nextA, prevA, r, null);
+			double best = walk(nextB, prevB, r, paths);
+			if (best == Double.POSITIVE_INFINITY) continue; //cannot happen when both tours are valid
+			if (size[r] <= EXACT){
+				double optimal = solve(r);
+				if (optimal < best){
+					best = optimal;
+					System.arraycopy(exact, 0, paths, used, size[r]);
+				}
+			}
+			if (best < kept - 1e-9){
+				replaced[r] = true;
+				used += size[r];
+				merged++;
+			}
+		}
+		if (merged == 0) return base;
+		int start = 0; //a position of the shorter tour that does not split a replaced component
+		while (label(a[start]) != -1 && label(a[start]) == label(a[(start + N - 1) % N])) start++;
+		for (int j = 0, k = 0; j < N; ){
+			int v = a[(start + j) % N];
+			int r = label(v);
+			if (r == -1){
+				order[k++] = v;
+				j++;
+				continue;
+			}
+			boolean forward = v == paths[offset[r]]; //entered at the path's first portal or its last
+			for (int i = 0; i < size[r]; i++){
+				order[k++] = paths[offset[r] + (forward ? i : size[r] - 1 - i)];
+			}
+			j += size[r];
+		}
+		int[] path = new int[N + 1];
+		Tour.fromOrder(order, path);
+		return new Tour(path, graph.tourLength(path));
+	}
+
+	/**
+	 * Gets the number of components that changed in the last merge of two tours
+	 * @return the count
+	 */
+	public int getMerged(){
+		return merged;
+	}
+
+	/**
+	 * Records the successor and predecessor of every vertex of a path
+	 * @param path the path, N+1 entries
+	 * @param next receives the successors
+	 * @param prev receives the predecessors
+	 */
+	private void link(int[] path, int[] next, int[] prev){
+		for (int i = 0; i < N; i++){
+			next[path[i]] = path[i + 1];
+			prev[path[i + 1]] = path[i];
+		}
+	}
+
+	/**
+	 * Joins the endpoints of every edge only one tour uses, then counts the shared edges leaving
+	 * each component of the shorter tour and remembers the first two of them
+	 */
+	private void components(){
+		for (int v = 0; v < N; v++){
+			parent[v] = v;
+			differs[v] = false;
+		}
+		for (int v = 0; v < N; v++){
+			int w = nextA[v];
+			if (nextB[v] != w && prevB[v] != w) union(v, w);
+			w = nextB[v];
+			if (nextA[v] != w && prevA[v] != w) union(v, w);
+		}
+		count();
+		for (int v = 0; v < N; v++){ //fuses components that cannot be swapped with their directly linked neighbors
+			if (!differs[v] || crossings[find(v)] <= 2) continue;
+			for (int u : new int[] {nextA[v], prevA[v]}){
+				if (differs[u] && crossings[find(u)] > 2) parent[find(u)] = find(v);
+			}
+		}
+		count();
+	}
+
+	/**
+	 * Counts the vertices of each component and the shared edges leaving it
+	 */
+	private void count(){
+		for (int v = 0; v < N; v++){
+			size[v] = 0;
+			crossings[v] = 0;
+		}
+		for (int v = 0; v < N; v++){
+			if (differs[v]) size[find(v)]++;
+		}
+		for (int v = 0; v < N; v++){
+			if (!differs[v]) continue;
+			int r = find(v);
+			if (leaves(nextA[v], r) || leaves(prevA[v], r)){ //a vertex always keeps one of its differing edges
+				if (crossings[r] < 2) portals[2 * r + crossings[r]] = v;
+				crossings[r]++;
+			}
+		}
+	}
+
+	/**
+	 * Determines if a neighbor lies outside a component
+	 * @param u the neighbor
+	 * @param r the component's root
+	 * @return true if the edge to it leaves the component
+	 */
+	private boolean leaves(int u, int r){
+		return !differs[u] || find(u) != r;
+	}
+
+	/**
+	 * Gives the replaced component a vertex belongs to
+	 * @param v the vertex
+	 * @return the component's root, or -1 if the vertex keeps the shorter tour's edges
+	 */
+	private int label(int v){
+		if (!differs[v]) return -1;
+		int r = find(v);
+		return replaced[r] ? r : -1;
+	}
+
+	/**
+	 * Finds a vertex's component, halving the path on the way
+	 * @param v the vertex
+	 * @return the root
+	 */
+	private int find(int v){
+		while (parent[v] != v){
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	/**
+	 * Marks both endpoints of a differing edge and joins their components
+	 * @param u one endpoint
+	 * @param v the other endpoint
+	 */
+	private void union(int u, int v){
+		differs[u] = true;
+		differs[v] = true;
+		int ru = find(u);
+		int rv = find(v);
+		if (ru != rv) parent[ru] = rv;
+	}
+
+	/**
+	 * Follows one tour through a two-portal component, from its first portal to its second
+	 * @param next the tour's successors
+	 * @param prev the tour's predecessors
+	 * @param r the component's root
+	 * @param out receives the path at the component's offset if not null
+	 * @return the length of the path, infinite if the tour does not stay inside the component
+	 */
+	private double walk(int[] next, int[] prev, int r, int[] out){
+		int cur = portals[2 * r];
+		int from = leaves(next[cur], r) ? next[cur] : prev[cur];
+		double length = 0.0;
+		for (int i = 0; i < size[r]; i++){
+			if (out != null) out[offset[r] + i] = cur;
+			int to = next[cur] == from ? prev[cur] : next[cur];
+			if (i == size[r] - 1) return cur == portals[2 * r + 1] ? length : Double.POSITIVE_INFINITY;
+			if (leaves(to, r)) return Double.POSITIVE_INFINITY;
+			length += graph.getWeight(cur, to);
+			from = cur;
+			cur = to;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds the shortest path between a component's portals through all of its vertices, with the
+	 * Held-Karp dynamic program over the interior vertices. The vertices are read from the
+	 * component's entry in paths.
+	 * @param r the component's root
+	 * @return the length of the path left in exact, infinite if the component is too small to improve
+	 */
+	private double solve(int r){
+		int m = size[r] - 2; //the interior vertices, bit j standing for paths[offset + 1 + j]
+		if (m < 2) return Double.POSITIVE_INFINITY;
+		int at = offset[r];
+		int p = paths[at];
+		int q = paths[at + m + 1];
+		int full = (1 << m) - 1;
+		for (int j = 0; j < m; j++){
+			cost[(1 << j) * m + j] = graph.getWeight(p, paths[at + 1 + j]);
+		}
+		for (int mask = 1; mask <= full; mask++){
+			if ((mask & (mask - 1)) == 0) continue; //single vertices were set above
+			for (int j = 0; j < m; j++){
+				if ((mask & (1 << j)) == 0) continue;
+				int prev = mask ^ (1 << j);
+				double best = Double.POSITIVE_INFINITY;
+				int from = 0;
+				for (int k = 0; k < m; k++){
+					if ((prev & (1 << k)) == 0) continue;
+					double c = cost[prev * m + k] + graph.getWeight(paths[at + 1 + k], paths[at + 1 + j]);
+					if (c < best){
+						best = c;
+						from = k;
+					}
+				}
+				cost[mask * m + j] = best;
+				back[mask * m + j] = (byte) from;
+			}
+		}
+		double best = Double.POSITIVE_INFINITY;
+		int last = 0;
+		for (int j = 0; j < m; j++){
+			double c = cost[full * m + j] + graph.getWeight(paths[at + 1 + j], q);
+			if (c < best){
+				best = c;
+				last = j;
+			}
+		}
+		exact[0] = p;
+		exact[m + 1] = q;
+		for (int i = m, mask = full; i >= 1; i--){ //walks the back-pointers from the end of the path
+			exact[i] = paths[at + 1 + last];
+			int prev = mask ^ (1 << last);
+			last = back[mask * m + last];
+			mask = prev;
+		}
+		return best;
+	}
+
+	public static void main(String args[]) throws IOException{
+		if (args.length < 2){ // checks to see if the number of arguments is correct
+			System.out.println("Usage: java TourMerge n seed [-k runs] [-metric euclidean|squared|manhattan|haversine|nint] [-implicit] [-road [file] [-cache pairs]] [-q] [-o file.tour | -b file.bin]");
+			System.exit(0);
+		}
+		int N;
+		long seed;
+		int runs = 4;
+		try { //the try catch block to check if the arguments are actually numbers
+			N =Integer.parseInt(args[0]);
+			seed = Long.parseLong(args[1]);
+			for (int i = 2; i + 1 < args.length; i++){
+				if (args[i].equals("-k")) runs = Integer.parseInt(args[i + 1]);
+			}
+		} catch(NumberFormatException e){
+			System.out.println("Command line args must be integers");
+			System.exit(0);
+			return;
+		}
+		if (N < 3 || runs < 0){
+			System.out.println("Need at least 3 vertices and no fewer than 0 runs");
+			System.exit(0);
+		}
+		TourWriter out = TourWriter.fromArgs(args);
+		Graph graph = Graph.fromArgs(N, seed, args);//creates the graph with the given N, seed and metric
+		TwoOpt search = new TwoOpt(graph, CandidateLists.spatial(graph, 10));
+		List<Tour> tours = new ArrayList<Tour>();
+		for (String name : new String[] {"greedy", "mst", "bitonic"}){ //the constructions, each improved by 2-opt
+			int[] path = Solvers.solve(name, graph);
+			tours.add(new Tour(path, search.improve(path)));
+			out.printf("  %s+2opt: %s\n", name, df.format(tours.get(tours.size() - 1).getLength()));
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		int[] scratch = new int[N + 1];
+		int[] seeds = new int[6];
+		for (int i = 0; i < runs; i++){ //further local optima from short iterated local searches on the greedy tour
+			int[] path = tours.get(0).getPath();
+			int[] trial = new int[N + 1];
+			double length = tours.get(0).getLength();
+			for (int t = 0; t < N / 4; t++){
+				System.arraycopy(path, 0, trial, 0, N + 1);
+				int count = MultiStartTSP.kick(random, trial, scratch, 1, seeds);
+				double next = search.improve(trial, seeds, count);
+				if (next < length){
+					length = next;
+					System.arraycopy(trial, 0, path, 0, N + 1);
+				}
+			}
+			tours.add(new Tour(path, length));
+			out.printf("  run %d: %s\n", i + 1, df.format(tours.get(tours.size() - 1).getLength()));
+		}
+		long start = System.currentTimeMillis();
+		Tour best = new TourMerge(graph).merge(tours);
+		long end = System.currentTimeMillis();
+		out.writeTour("Distance using tour merging: ", best.getLength(), best.getPath());
+		out.printf("Runtime for tour merging TSP   : %d milliseconds\n\n", end - start);
+		out.close();
+	}
+}
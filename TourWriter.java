@@ -0,0 +1,254 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * The output stage shared by every solver. Streams a tour through a buffered NIO channel
+ * one vertex at a time, so no large strings are ever built, in one of three formats:
+ * the plain "Distance using ...: d for path ..." line on stdout, a TSPLIB .tour file or a compact
+ * binary file of varint-encoded deltas. Diagnostics (matrices, tables, runtimes) go through
+ * printf and are skipped entirely in quiet mode.
+ */
+public class TourWriter {
+	public static final int PLAIN = 0; //the "for path 0 1 2 ... 0" line used by every solver
+	public static final int TSPLIB = 1; //TSPLIB .tour, 1-based vertex ids terminated by -1
+	public static final int BINARY = 2; //magic, varint N, 8 byte distance, N zig-zag varint deltas
+
+	public static final int MAGIC = 0x54535042; //"TSPB"
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static DecimalFormat df = new DecimalFormat("0.00");
+
+	private WritableByteChannel channel; //where the tour goes
+	private ByteBuffer buffer; //the staging buffer, drained whenever it fills
+	private int format; //one of PLAIN, TSPLIB or BINARY
+	private boolean quiet; //true if diagnostics should be skipped
+	private boolean stdout; //true if the channel shares file descriptor 1 with System.out
+	private int last; //the previously written vertex, used by the binary delta encoding
+
+	/**
+	 * Constructs a writer over an already opened channel
+	 * @param channel the channel to write the tours to
+	 * @param format PLAIN, TSPLIB or BINARY
+	 * @param quiet true if diagnostics should be suppressed
+	 */
+	public TourWriter(WritableByteChannel channel, int format, boolean quiet){
+		this.channel = channel;
+		this.format = format;
+		this.quiet = quiet;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.stdout = false;
+	}
+
+	/**
+	 * Constructs a writer which writes plain tours straight to the stdout file descriptor
+	 * @param quiet true if diagnostics should be suppressed
+	 * @return the writer
+	 */
+	public static TourWriter stdout(boolean quiet){
+		TourWriter out = new TourWriter(new FileOutputStream(FileDescriptor.out).getChannel(), PLAIN, quiet);
+		out.stdout = true;
+		return out;
+	}
+
+	/**
+	 * Builds a writer from the optional command line flags that follow "n seed".
+	 * -q suppresses diagnostics, -o file writes a TSPLIB tour and -b file writes a binary tour.
+	 * Flags that are not recognized are left for the caller.
+	 * @param args the command line arguments
+	 * @return the writer
+	 * @throws IOException if the output file cannot be opened
+	 */
+	public static TourWriter fromArgs(String[] args) throws IOException{
+		boolean quiet = false;
+		String file = null;
+		int format = PLAIN;
+		for (int i = 2; i < args.length; i++){
+			if (args[i].equals("-q")){
+				quiet = true;
+			} else if ((args[i].equals("-o") || args[i].equals("-b")) && i + 1 < args.length){
+				format = args[i].equals("-o") ? TSPLIB : BINARY;
+				file = args[++i];
+			}
+		}
+		if (file == null) return stdout(quiet);
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		return new TourWriter(channel, format, quiet);
+	}
+
+	/**
+	 * Determines if diagnostics should be skipped
+	 * @return true if in quiet mode
+	 */
+	public boolean isQuiet(){
+		return quiet;
+	}
+
+	/**
+	 * Prints a diagnostic line to stdout unless in quiet mode
+	 * @param format the format string
+	 * @param args the format arguments
+	 */
+	public void printf(String format, Object... args) throws IOException{
+		if (quiet) return;
+		flush(); //keeps the order of anything still staged for stdout
+		System.out.printf(format, args);
+	}
+
+	/**
+	 * Starts streaming a tour. The vertices must follow through writeVertex and be closed with endTour.
+	 * @param label the prefix of the plain line (e.g. "Distance using greedy: ") or the TSPLIB name
+	 * @param distance the length of the tour
+	 * @param N the number of vertices in the tour (excluding the return to the start)
+	 */
+	public void beginTour(String label, double distance, int N) throws IOException{
+		last = 0;
+		switch (format){
+		case PLAIN:
+			writeAscii(label);
+			writeAscii(df.format(distance));
+			writeAscii(" for path ");
+			break;
+		case TSPLIB:
+			writeAscii("NAME : " + label.replace(":", "").trim() + "\nCOMMENT : Length = " + df.format(distance));
+			writeAscii("\nTYPE : TOUR\nDIMENSION : ");
+			writeInt(N);
+			writeAscii("\nTOUR_SECTION\n");
+			break;
+		default:
+			ensure(4 + 5 + 8);
+			buffer.putInt(MAGIC);
+			writeVarint(N);
+			buffer.putDouble(distance);
+		}
+	}
+
+	/**
+	 * Streams the next vertex of the tour started by beginTour
+	 * @param v the vertex id
+	 */
+	public void writeVertex(int v) throws IOException{
+		switch (format){
+		case PLAIN:
+			writeInt(v);
+			ensure(1);
+			buffer.put((byte) ' ');
+			break;
+		case TSPLIB:
+			writeInt(v + 1);
+			ensure(1);
+			buffer.put((byte) '\n');
+			break;
+		default:
+			int delta = v - last;
+			writeVarint((delta << 1) ^ (delta >> 31)); //zig-zag so that small negative deltas stay small
+		}
+		last = v;
+	}
+
+	/**
+	 * Ends the current tour and pushes it to the channel
+	 */
+	public void endTour() throws IOException{
+		if (format == PLAIN){
+			writeAscii("\n");
+		} else if (format == TSPLIB){
+			writeAscii("-1\nEOF\n");
+		}
+		flush();
+	}
+
+	/**
+	 * Writes a whole tour in the repo's path representation
+	 * @param label the prefix of the plain line or the TSPLIB name
+	 * @param distance the length of the tour
+	 * @param path the tour, N+1 entries starting and ending at the same vertex
+	 */
+	public void writeTour(String label, double distance, int[] path) throws IOException{
+		int N = path.length - 1;
+		beginTour(label, distance, N);
+		int end = format == PLAIN ? N + 1 : N; //only the plain line repeats the start vertex
+		for (int i = 0; i < end; i++){
+			writeVertex(path[i]);
+		}
+		endTour();
+	}
+
+	/**
+	 * Drains the staging buffer into the channel
+	 */
+	public void flush() throws IOException{
+		if (buffer.position() == 0) return;
+		if (stdout) System.out.flush(); //anything printed through System.out must come out first
+		buffer.flip();
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Flushes and closes the writer. The stdout channel is left open.
+	 */
+	public void close() throws IOException{
+		flush();
+		if (!stdout) channel.close();
+	}
+
+	/**
+	 * Makes sure there is room for n more bytes in the buffer
+	 * @param n the number of bytes needed
+	 */
+	private void ensure(int n) throws IOException{
+		if (buffer.remaining() < n) flush();
+	}
+
+	/**
+	 * Writes an ascii string into the buffer
+	 * @param s the string
+	 */
+	private void writeAscii(String s) throws IOException{
+		for (int i = 0; i < s.length(); i++){
+			ensure(1);
+			buffer.put((byte) s.charAt(i));
+		}
+	}
+
+	/**
+	 * Writes the decimal digits of an int into the buffer without creating a string
+	 * @param v the value
+	 */
+	private void writeInt(int v) throws IOException{
+		ensure(11);
+		if (v < 0){
+			buffer.put((byte) '-');
+			v = -v;
+		}
+		int div = 1;
+		while (v / div >= 10) div *= 10;
+		while (div > 0){
+			buffer.put((byte) ('0' + (v / div) % 10));
+			div /= 10;
+		}
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint into the buffer
+	 * @param v the value, treated as unsigned
+	 */
+	private void writeVarint(int v) throws IOException{
+		ensure(5);
+		while ((v & ~0x7F) != 0){
+			buffer.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buffer.put((byte) v);
+	}
+}
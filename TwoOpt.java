@@ -0,0 +1,199 @@
+
+/**
+ * @author Dyangelo Grullon (dag4202)
+ * A 2-opt local search over an array tour, restricted to candidate neighbor lists and driven by a
+ * queue of vertices whose neighborhood changed (don't-look bits). Every buffer is allocated once,
+ * so one instance per thread can improve any number of tours without allocating.
+ */
+public class TwoOpt {
+	private static final double EPS = 1e-9; //the smallest gain worth a move
+
+	private Graph graph; //the graph the tours are on, only read
+	private int[][] neighbors; //the candidate lists
+	private int N; //the number of vertices
+	private int[] order; //the tour as a cyclic order of vertices
+	private int[] pos; //the position of each vertex in order
+	private int[] queue; //the circular queue of vertices to examine
+	private boolean[] queued; //true if a vertex is in the queue
+	private int head; //the front of the queue
+	private int size; //the number of vertices in the queue
+
+	/**
+	 * Constructor for the local search
+	 * @param graph the graph the tours are on
+	 * @param neighbors the candidate lists, e.g. from CandidateLists.spatial or nearest
+	 */
+	public TwoOpt(Graph graph, int[][] neighbors){
+		this.graph = graph;
+		this.neighbors = neighbors;
+		this.N = graph.getN();
+		this.order = new int[N];
+		this.pos = new int[N];
+		this.queue = new int[N];
+		this.queued = new boolean[N];
+	}
+
+	/**
+	 * Improves a tour until it is 2-optimal with respect to the candidate lists
+	 * @param path the path, N+1 entries starting and ending at vertex 0, improved in place
+	 * @return the new length of the path
+	 */
+	public double improve(int[] path){
+		load(path);
+		for (int v = 0; v < N; v++){
+			push(path[v]);
+		}
+		run();
+		Tour.fromOrder(order, path);
+		return graph.tourLength(path);
+	}
+
+	/**
+	 * Improves a tour by only examining the neighborhood of a few vertices and whatever their moves touch
+	 * @param path the path, N+1 entries starting and ending at vertex 0, improved in place
+	 * @param seeds the vertices to start from
+	 * @param count the number of seeds to use
+	 * @return the new length of the path
+	 */
+	public double improve(int[] path, int[] seeds, int count){
+		load(path);
+		for (int i = 0; i < count; i++){
+			push(seeds[i]);
+		}
+		run();
+		Tour.fromOrder(order, path);
+		return graph.tourLength(path);
+	}
+
+	/**
+	 * Copies a path into the order and position arrays
+	 * @param path the path
+	 */
+	private void load(int[] path){
+		for (int i = 0; i < N; i++){
+			order[i] = path[i];
+			pos[path[i]] = i;
+		}
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Examines queued vertices until the queue is empty or the thread is interrupted
+	 */
+	private void run(){
+		if (N < 5){ //every tour of four or fewer vertices is 2-optimal
+			while (size > 0) pop();
+			return;
+		}
+		int checks = 0;
+		while (size > 0){
+			if ((++checks & 255) == 0 && Thread.currentThread().isInterrupted()){
+				while (size > 0) pop(); //leaves the buffers clean for the next tour
+				return;
+			}
+			int a = pop();
+			while (tryMove(a));
+		}
+	}
+
+	/**
+	 * Looks for an improving 2-opt move that adds an edge from a to one of its candidates
+	 * @param a the vertex
+	 * @return true if a move was made
+	 */
+	private boolean tryMove(int a){
+		for (int dir = 0; dir < 2; dir++){
+			int b = dir == 0 ? succ(a) : pred(a);
+			double dab = graph.getWeight(a, b);
+			for (int c : neighbors[a]){
+				double dac = graph.getWeight(a, c);
+				if (dac >= dab) break; //the lists are sorted, no later candidate can gain
+				int d = dir == 0 ? succ(c) : pred(c);
+				if (c == b || d == a) continue;
+				double delta = dac + graph.getWeight(b, d) - dab - graph.getWeight(c, d);
+				if (delta < -EPS){
+					if (dir == 0){
+						reverse(pos[b], pos[c]); //a b ... c d becomes a c ... b d
+					} else {
+						reverse(pos[a], pos[d]); //b a ... d c becomes b d ... a c
+					}
+					push(a);
+					push(b);
+					push(c);
+					push(d);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reverses the cyclic segment of the tour from position i forward to position j,
+	 * or the complementary segment if that one is shorter
+	 * @param i the first position
+	 * @param j the last position
+	 */
+	private void reverse(int i, int j){
+		int len = ((j - i + N) % N) + 1;
+		if (2 * len > N){
+			int t = (j + 1) % N;
+			j = (i - 1 + N) % N;
+			i = t;
+			len = N - len;
+		}
+		for (int s = 0; s < len / 2; s++){
+			int x = order[i];
+			int y = order[j];
+			order[i] = y;
+			pos[y] = i;
+			order[j] = x;
+			pos[x] = j;
+			if (++i == N) i = 0;
+			if (--j < 0) j = N - 1;
+		}
+	}
+
+	/**
+	 * The vertex after v in the tour
+	 * @param v a vertex
+	 * @return its successor
+	 */
+	private int succ(int v){
+		int p = pos[v] + 1;
+		return order[p == N ? 0 : p];
+	}
+
+	/**
+	 * The vertex before v in the tour
+	 * @param v a vertex
+	 * @return its predecessor
+	 */
+	private int pred(int v){
+		int p = pos[v] - 1;
+		return order[p < 0 ? N - 1 : p];
+	}
+
+	/**
+	 * Adds a vertex to the queue unless it is already there
+	 * @param v the vertex
+	 */
+	private void push(int v){
+		if (queued[v]) return;
+		queued[v] = true;
+		queue[(head + size++) % N] = v;
+	}
+
+	/**
+	 * Removes the vertex at the front of the queue
+	 * @return the vertex
+	 */
+	private int pop(){
+		int v = queue[head];
+		head = (head + 1) % N;
+		size--;
+		queued[v] = false;
+		return v;
+	}
+}
@@ -7,7 +7,7 @@
  */
 public class Vertex implements Comparable < Vertex >{
 		public int id; //the id of the vertex
-		public Double weight; //the weight between parent and vertex id
+		public double weight; //the weight between parent and vertex id
 		public int parent; //the parent of the vertex
 		public boolean leftToRight;
 		/**
@@ -23,7 +23,7 @@ public class Vertex implements Comparable < Vertex >{
 		
 		@Override
 		public int compareTo(Vertex o) { //already documented
-			return o.weight.compareTo(this.weight);
+			return Double.compare(o.weight, this.weight);
 		}
 		
 		@Override